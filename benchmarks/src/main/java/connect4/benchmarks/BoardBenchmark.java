@@ -0,0 +1,68 @@
+package connect4.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoardBenchmark {
+    @Param({"", "3324", "231433211133", "43315544515245344335"})
+    public String position;
+
+    private Object board;
+    private int playerToMove;
+    private int column;
+    private Object finishedStepBoard;
+    private final int[] steps = new int[Engine.BOARD_SIZE[1]];
+
+    @Setup
+    public void setup() throws Throwable {
+        board = Engine.boardOf(position);
+        playerToMove = Engine.playerToMove(board);
+        column = 3;
+        // gameEnded() looks at the last step, so measure it on a board that has one
+        finishedStepBoard = Engine.boardOf(position + "2");
+    }
+
+    // a step alone cannot be repeated, so it is measured together with taking it back
+    @Benchmark
+    public void stepAndUndo() throws Throwable {
+        Engine.STEP.invokeExact(board, playerToMove, column);
+        Engine.UNDO.invokeExact(board);
+    }
+
+    @Benchmark
+    public boolean gameEnded() throws Throwable {
+        return (boolean) Engine.GAME_ENDED.invokeExact(finishedStepBoard);
+    }
+
+    @Benchmark
+    public Object copy() throws Throwable {
+        return (Object) Engine.COPY_BOARD.invokeExact(board);
+    }
+
+    @Benchmark
+    public Object getValidSteps() throws Throwable {
+        return (Object) Engine.GET_VALID_STEPS.invokeExact(board);
+    }
+
+    @Benchmark
+    public int getValidStepsIntoBuffer() throws Throwable {
+        return (int) Engine.GET_VALID_STEPS_INTO.invokeExact(board, (Object) steps);
+    }
+}
@@ -0,0 +1,109 @@
+package connect4.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+
+/**
+ * The game lives in the default package, which classes in a named package (and so JMH benchmarks) cannot refer to.
+ * The benchmarks reach it through these handles instead; being static final, the JIT inlines them like direct calls.
+ */
+final class Engine {
+    static final int[] BOARD_SIZE = new int[] {6, 7};
+    static final int N_TO_CONNECT = 4;
+
+    static final MethodHandle NEW_BOARD;
+    static final MethodHandle COPY_BOARD;
+    static final MethodHandle STEP;
+    static final MethodHandle UNDO;
+    static final MethodHandle GAME_ENDED;
+    static final MethodHandle GET_VALID_STEPS;
+    static final MethodHandle GET_VALID_STEPS_INTO;
+    static final MethodHandle SET_EVALUATOR;
+    static final MethodHandle GET_N_STEPS;
+
+    static final MethodHandle NEW_EVALUATOR;
+    static final MethodHandle RESET_EVALUATOR;
+
+    static final MethodHandle NEGAMAX_EVALUATE;
+
+    static final MethodHandle NEW_STUDENT_PLAYER;
+    static final MethodHandle STUDENT_PLAYER_STEP;
+    static final MethodHandle STUDENT_PLAYER_LAST_NODES;
+    static final MethodHandle NEW_PARALLEL_STUDENT_PLAYER;
+    static final MethodHandle CLOSE_STUDENT_PLAYER;
+
+    static final MethodHandle NEW_STUDENT_PLAYER2;
+    static final MethodHandle STUDENT_PLAYER2_STEP;
+    static final MethodHandle STUDENT_PLAYER2_CHECKED_NODES;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            Class<?> board = Class.forName("Board");
+            Class<?> evaluator = Class.forName("IncrementalEvaluator");
+            Class<?> studentPlayer = Class.forName("StudentPlayer");
+            Class<?> studentPlayer2 = Class.forName("StudentPlayer2");
+            Class<?> negamaxSearch = Class.forName("NegamaxSearch");
+
+            NEW_BOARD = erase(lookup.findConstructor(board, MethodType.methodType(void.class, int[].class, int.class)));
+            COPY_BOARD = erase(lookup.findConstructor(board, MethodType.methodType(void.class, board)));
+            STEP = erase(lookup.findVirtual(board, "step", MethodType.methodType(void.class, int.class, int.class)));
+            UNDO = erase(lookup.findVirtual(board, "undo", MethodType.methodType(void.class)));
+            GAME_ENDED = erase(lookup.findVirtual(board, "gameEnded", MethodType.methodType(boolean.class)));
+            GET_VALID_STEPS = erase(lookup.findVirtual(board, "getValidSteps", MethodType.methodType(ArrayList.class)));
+            GET_VALID_STEPS_INTO = erase(lookup.findVirtual(board, "getValidSteps", MethodType.methodType(int.class, int[].class)));
+            SET_EVALUATOR = erase(lookup.findVirtual(board, "setEvaluator", MethodType.methodType(void.class, evaluator)));
+            GET_N_STEPS = erase(lookup.findVirtual(board, "getNSteps", MethodType.methodType(int.class)));
+
+            NEW_EVALUATOR = erase(lookup.findConstructor(evaluator,
+                    MethodType.methodType(void.class, int[].class, int.class, int.class, int.class)));
+            RESET_EVALUATOR = erase(lookup.findVirtual(evaluator, "reset", MethodType.methodType(void.class, board)));
+
+            NEGAMAX_EVALUATE = erase(MethodHandles.privateLookupIn(negamaxSearch, lookup).findStatic(negamaxSearch,
+                    "evaluate", MethodType.methodType(int.class, board, evaluator, int.class)));
+
+            NEW_STUDENT_PLAYER = erase(lookup.findConstructor(studentPlayer,
+                    MethodType.methodType(void.class, int.class, int[].class, int.class, int.class)));
+            STUDENT_PLAYER_STEP = erase(lookup.findVirtual(studentPlayer, "step", MethodType.methodType(int.class, board)));
+            STUDENT_PLAYER_LAST_NODES = erase(lookup.findVirtual(studentPlayer, "getLastNodes", MethodType.methodType(long.class)));
+            NEW_PARALLEL_STUDENT_PLAYER = erase(lookup.findConstructor(studentPlayer,
+                    MethodType.methodType(void.class, int.class, int[].class, int.class, int.class, long.class, int.class)));
+            CLOSE_STUDENT_PLAYER = erase(lookup.findVirtual(studentPlayer, "close", MethodType.methodType(void.class)));
+
+            NEW_STUDENT_PLAYER2 = erase(lookup.findConstructor(studentPlayer2,
+                    MethodType.methodType(void.class, int.class, int[].class, int.class)));
+            STUDENT_PLAYER2_STEP = erase(lookup.findVirtual(studentPlayer2, "step", MethodType.methodType(int.class, board)));
+            STUDENT_PLAYER2_CHECKED_NODES = erase(lookup.findVirtual(studentPlayer2, "getCheckedNodes", MethodType.methodType(int.class)));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Engine() {
+    }
+
+    // game classes become Object in the handle types, so call sites can use invokeExact without naming them
+    private static MethodHandle erase(MethodHandle handle) {
+        return handle.asType(handle.type().erase());
+    }
+
+    // a board after playing the columns of the given string, the first player starts
+    static Object boardOf(String columns) throws Throwable {
+        Object board = (Object) NEW_BOARD.invokeExact((Object) BOARD_SIZE, N_TO_CONNECT);
+        int playerIndex = 1;
+        for (char column : columns.toCharArray()) {
+            STEP.invokeExact(board, playerIndex, column - '0');
+            if ((boolean) GAME_ENDED.invokeExact(board)) {
+                throw new IllegalArgumentException("Corpus position is already finished: " + columns);
+            }
+            playerIndex = 3 - playerIndex;
+        }
+        return board;
+    }
+
+    static int playerToMove(Object board) throws Throwable {
+        return (int) GET_N_STEPS.invokeExact(board) % 2 == 0 ? 1 : 2;
+    }
+}
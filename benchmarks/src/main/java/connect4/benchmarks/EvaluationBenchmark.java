@@ -0,0 +1,58 @@
+package connect4.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EvaluationBenchmark {
+    @Param({"", "3324", "231433211133", "43315544515245344335"})
+    public String position;
+
+    private Object board;
+    private Object evaluator;
+    private int playerToMove;
+
+    @Setup
+    public void setup() throws Throwable {
+        board = Engine.boardOf(position);
+        playerToMove = Engine.playerToMove(board);
+        evaluator = (Object) Engine.NEW_EVALUATOR.invokeExact((Object) Engine.BOARD_SIZE, Engine.N_TO_CONNECT, 2, 1);
+        Engine.RESET_EVALUATOR.invokeExact(evaluator, board);
+        Engine.SET_EVALUATOR.invokeExact(board, evaluator);
+    }
+
+    // leaf evaluation in the search both players share
+    @Benchmark
+    public int negamaxEvaluate() throws Throwable {
+        return (int) Engine.NEGAMAX_EVALUATE.invokeExact(board, evaluator, playerToMove);
+    }
+
+    // what the evaluator pays per searched step
+    @Benchmark
+    public void incrementalStepAndUndo() throws Throwable {
+        Engine.STEP.invokeExact(board, playerToMove, 3);
+        Engine.UNDO.invokeExact(board);
+    }
+
+    // evaluating a position from scratch, done once per search
+    @Benchmark
+    public void fullEvaluation() throws Throwable {
+        Engine.RESET_EVALUATOR.invokeExact(evaluator, board);
+    }
+}
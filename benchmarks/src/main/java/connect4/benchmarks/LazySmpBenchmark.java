@@ -0,0 +1,64 @@
+package connect4.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to depth of StudentPlayer's Lazy SMP search: the same fixed-depth search with 1 and more threads, so the
+ * speedup is the ratio of the scores. Helper threads only pay off with as many free cores as threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class LazySmpBenchmark {
+    private static final int TRANSPOSITION_TABLE_MEGABYTES = 8;
+
+    @Param({"", "3324", "231433211133"})
+    public String position;
+
+    @Param({"1", "2", "4"})
+    public int threads;
+
+    private Object board;
+    private int playerToMove;
+    private Object studentPlayer;
+
+    @Setup(Level.Trial)
+    public void setupPosition() throws Throwable {
+        board = Engine.boardOf(position);
+        playerToMove = Engine.playerToMove(board);
+    }
+
+    // a fresh player for every search, so the table starts cold; 0 move time searches to the player's fixed depth
+    @Setup(Level.Invocation)
+    public void setupPlayer() throws Throwable {
+        studentPlayer = (Object) Engine.NEW_PARALLEL_STUDENT_PLAYER.invokeExact(playerToMove, (Object) Engine.BOARD_SIZE,
+                Engine.N_TO_CONNECT, TRANSPOSITION_TABLE_MEGABYTES, 0L, threads);
+    }
+
+    @TearDown(Level.Invocation)
+    public void closePlayer() throws Throwable {
+        Engine.CLOSE_STUDENT_PLAYER.invokeExact(studentPlayer);
+    }
+
+    @Benchmark
+    public int timeToDepth() throws Throwable {
+        return (int) Engine.STUDENT_PLAYER_STEP.invokeExact(studentPlayer, (Object) Engine.COPY_BOARD.invokeExact(board));
+    }
+}
@@ -0,0 +1,74 @@
+package connect4.benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full fixed-depth searches of both engines. Besides searches per second, the nodes counter reports nodes per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SearchBenchmark {
+    // StudentPlayer's transposition table, small so that creating a fresh player for every search stays cheap
+    private static final int TRANSPOSITION_TABLE_MEGABYTES = 8;
+
+    @Param({"", "3324", "231433211133", "43315544515245344335"})
+    public String position;
+
+    private Object board;
+    private int playerToMove;
+    private Object studentPlayer;
+    private Object studentPlayer2;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Nodes {
+        public long nodes;
+    }
+
+    @Setup(Level.Trial)
+    public void setupPosition() throws Throwable {
+        board = Engine.boardOf(position);
+        playerToMove = Engine.playerToMove(board);
+    }
+
+    // players keep tables and history between moves, every measured search has to start cold
+    @Setup(Level.Invocation)
+    public void setupPlayers() throws Throwable {
+        studentPlayer = (Object) Engine.NEW_STUDENT_PLAYER.invokeExact(playerToMove, (Object) Engine.BOARD_SIZE,
+                Engine.N_TO_CONNECT, TRANSPOSITION_TABLE_MEGABYTES);
+        studentPlayer2 = (Object) Engine.NEW_STUDENT_PLAYER2.invokeExact(playerToMove, (Object) Engine.BOARD_SIZE,
+                Engine.N_TO_CONNECT);
+    }
+
+    @Benchmark
+    public int studentPlayer(Nodes nodes) throws Throwable {
+        int column = (int) Engine.STUDENT_PLAYER_STEP.invokeExact(studentPlayer, (Object) Engine.COPY_BOARD.invokeExact(board));
+        nodes.nodes += (long) Engine.STUDENT_PLAYER_LAST_NODES.invokeExact(studentPlayer);
+        return column;
+    }
+
+    @Benchmark
+    public int studentPlayer2(Nodes nodes) throws Throwable {
+        int column = (int) Engine.STUDENT_PLAYER2_STEP.invokeExact(studentPlayer2, (Object) Engine.COPY_BOARD.invokeExact(board));
+        nodes.nodes += (int) Engine.STUDENT_PLAYER2_CHECKED_NODES.invokeExact(studentPlayer2);
+        return column;
+    }
+}
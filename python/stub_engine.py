@@ -0,0 +1,43 @@
+# Minimal stand-in for student_code_binder.py, for testing EnginePool and PythonPlayer without a real engine.
+# Speaks the line protocol of CommunicationMaster: a line with the number of lines, then the lines.
+#   start of a game: {"player_index": 1, "board_size": [6, 7], "n_to_connect": 4}, answered with "ok"
+#   step: the column the other player stepped into last (-1 if none), answered with the column of the own step,
+#         the free column closest to the center
+import json
+import sys
+
+
+def read_message():
+    header = sys.stdin.readline()
+    if not header:
+        return None
+    return "\n".join(sys.stdin.readline().rstrip("\n") for _ in range(int(header)))
+
+
+def answer(*lines):
+    sys.stdout.write("%d\n" % len(lines))
+    for line in lines:
+        sys.stdout.write("%s\n" % line)
+    sys.stdout.flush()
+
+
+heights = []
+rows = 0
+while True:
+    message = read_message()
+    if message is None:
+        break
+    if message.startswith("{"):
+        config = json.loads(message)
+        rows, columns = config["board_size"]
+        heights = [0] * columns
+        answer("ok")
+        continue
+
+    last_column = int(message)
+    if last_column >= 0:
+        heights[last_column] += 1
+    columns = len(heights)
+    column = min((c for c in range(columns) if heights[c] < rows), key=lambda c: abs(2 * c - (columns - 1)))
+    heights[column] += 1
+    answer(column)
@@ -0,0 +1,89 @@
+import java.io.PrintStream;
+import java.util.concurrent.ArrayBlockingQueue;
+
+// Renders on the game thread but leaves the printing to a background writer thread, so a slow or contended
+// output stream never holds up the game. When the writer falls behind by more than capacity frames, the
+// oldest waiting frames are dropped: the latest board is always the one shown. One view can be shared by
+// concurrent games, each frame is rendered on its own game's thread and printed whole.
+public class AsyncView extends View {
+    private final ConsoleView view;
+    private final PrintStream out;
+    private final ArrayBlockingQueue<String> frames;
+    private final Thread writer;
+    // frames handed over and frames either written or dropped since, guarded by this
+    private long submittedFrames;
+    private long finishedFrames;
+    private long droppedFrames;
+
+    public AsyncView(ConsoleView view, int capacity) {
+        this(view, capacity, System.out);
+    }
+
+    public AsyncView(ConsoleView view, int capacity, PrintStream out) {
+        super(view.boardSize);
+        this.view = view;
+        this.out = out;
+        this.frames = new ArrayBlockingQueue<>(capacity);
+        this.writer = new Thread(this::writeFrames, "AsyncView-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void drawBoard(Board board) {
+        String frame = view.render(board);
+        synchronized (this) {
+            submittedFrames++;
+            while (!frames.offer(frame)) {
+                if (frames.poll() != null) {
+                    droppedFrames++;
+                    finishedFrames++;
+                }
+            }
+        }
+    }
+
+    private void writeFrames() {
+        try {
+            while (true) {
+                String frame = frames.take();
+                out.print(frame);
+                out.flush();
+                synchronized (this) {
+                    finishedFrames++;
+                    notifyAll();
+                }
+            }
+        } catch (InterruptedException e) {
+            // closed
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+        try {
+            while (finishedFrames < submittedFrames) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // the prompt must not appear before the board it is about
+    @Override
+    public int getStep(int player) {
+        flush();
+        return view.getStep(player);
+    }
+
+    // shows what is still waiting and stops the writer thread
+    public void close() {
+        flush();
+        writer.interrupt();
+    }
+
+    public synchronized long getDroppedFrames() {
+        return droppedFrames;
+    }
+}
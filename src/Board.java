@@ -1,13 +1,38 @@
 import java.util.ArrayList;
-import java.util.Arrays;
 
 import static java.lang.Math.max;
 import static java.lang.Math.min;
 
 public class Board {
-    private final int[][] state;
+    // boards whose columns (plus one sentinel cell each) fit into 64 bits are stored as bitboards,
+    // bigger ones fall back to the int[][] representation
+    private static final int BITBOARD_SIZE = 64;
+
     private final int[] boardSize;
     private final int nToConnect;
+    private final int columnHeight;
+    private final boolean isBitboard;
+
+    // bit (col * columnHeight + row) is set if the player owns that cell, row 0 is the bottom row
+    private final long[] playerBits;
+    private final int[] heights;
+
+    // columns played so far and the winner before each of those steps, used by undo()
+    private final int[] moves;
+    private final int[] previousWinners;
+
+    // authoritative for big boards, lazily materialized view for bitboards
+    private int[][] state;
+    private boolean stateIsStale;
+
+    // kept up to date by step() and undo() if set, not carried over to copies
+    private IncrementalEvaluator evaluator;
+
+    // Zobrist hash of the pieces on the board, updated incrementally by step() and undo()
+    private long zobristKey = 0;
+    // the same hash of the board mirrored left to right
+    private long mirrorZobristKey = 0;
+
     private int nSteps = 0;
     private int lastPlayerIndex = -1;
 
@@ -16,15 +41,36 @@ public class Board {
     private int winner = -1;
 
     public Board(int[] boardSize, int nToConnect) {
-        this.state = new int[boardSize[0]][boardSize[1]];
         this.boardSize = boardSize;
         this.nToConnect = nToConnect;
+        this.columnHeight = boardSize[0] + 1;
+        this.isBitboard = boardSize[1] * columnHeight <= BITBOARD_SIZE;
+        this.playerBits = new long[3];
+        this.heights = new int[boardSize[1]];
+        this.moves = new int[boardSize[0] * boardSize[1]];
+        this.previousWinners = new int[boardSize[0] * boardSize[1]];
+        this.state = new int[boardSize[0]][boardSize[1]];
+        this.stateIsStale = false;
     }
 
     public Board(Board boardToCopy) {
-        this.state = Arrays.stream(boardToCopy.state).map(int[]::clone).toArray(int[][]::new);
         this.boardSize = boardToCopy.boardSize;
         this.nToConnect = boardToCopy.nToConnect;
+        this.columnHeight = boardToCopy.columnHeight;
+        this.isBitboard = boardToCopy.isBitboard;
+        this.playerBits = boardToCopy.playerBits.clone();
+        this.heights = boardToCopy.heights.clone();
+        this.moves = boardToCopy.moves.clone();
+        this.previousWinners = boardToCopy.previousWinners.clone();
+        if (isBitboard) {
+            this.state = null;
+            this.stateIsStale = true;
+        } else {
+            this.state = copyState(boardToCopy.state);
+            this.stateIsStale = false;
+        }
+        this.zobristKey = boardToCopy.zobristKey;
+        this.mirrorZobristKey = boardToCopy.mirrorZobristKey;
         this.nSteps = boardToCopy.nSteps;
         this.lastPlayerIndex = boardToCopy.lastPlayerIndex;
         this.lastPlayerRow = boardToCopy.lastPlayerRow;
@@ -32,16 +78,49 @@ public class Board {
         this.winner = boardToCopy.winner;
     }
 
+    private static int[][] copyState(int[][] state) {
+        int[][] copy = new int[state.length][];
+        for (int row = 0; row < state.length; row++) {
+            copy[row] = state[row].clone();
+        }
+        return copy;
+    }
+
     public int[][] getState() {
+        if (stateIsStale) {
+            materializeState();
+        }
         return state;
     }
 
+    private void materializeState() {
+        if (state == null) {
+            state = new int[boardSize[0]][boardSize[1]];
+        }
+        for (int col = 0; col < boardSize[1]; col++) {
+            for (int row = 0; row < boardSize[0]; row++) {
+                state[boardSize[0] - 1 - row][col] = getCellOwner(col, row);
+            }
+        }
+        stateIsStale = false;
+    }
+
+    private int getCellOwner(int column, int rowFromBottom) {
+        if (!isBitboard) {
+            return state[boardSize[0] - 1 - rowFromBottom][column];
+        }
+        long cell = 1L << (column * columnHeight + rowFromBottom);
+        if ((playerBits[1] & cell) != 0) return 1;
+        if ((playerBits[2] & cell) != 0) return 2;
+        return 0;
+    }
+
     public boolean stepIsValid(int column) {
         boolean validColIndex = column >= 0 && column < this.boardSize[1];
         if (!validColIndex)
             return false;
 
-        boolean isSpaceOnTheTop = this.state[0][column] == 0;
+        boolean isSpaceOnTheTop = heights[column] < boardSize[0];
 
         return isSpaceOnTheTop;
     }
@@ -57,19 +136,85 @@ public class Board {
         return validCols;
     }
 
+    // allocation free variant of getValidSteps(), writes the columns into steps and returns their count
+    public int getValidSteps(int[] steps) {
+        int nValidSteps = 0;
+        for (int col = 0; col < boardSize[1]; col++) {
+            if (heights[col] < boardSize[0]) {
+                steps[nValidSteps++] = col;
+            }
+        }
+
+        return nValidSteps;
+    }
+
     public void step(int playerIndex, int column) {
+        if (!stepIsValid(column))
+            return;
+
+        int rowFromBottom = heights[column]++;
+        moves[nSteps] = column;
+        previousWinners[nSteps] = winner;
         nSteps++;
         lastPlayerIndex = playerIndex;
         lastPlayerColumn = column;
-        for (int row = boardSize[0] - 1; row >= 0; row--) {
-            if (this.state[row][column] == 0) {
-                this.state[row][column] = playerIndex;
-                lastPlayerRow = row;
-                return;
-            }
+        lastPlayerRow = boardSize[0] - 1 - rowFromBottom;
+        zobristKey ^= zobrist(column * columnHeight + rowFromBottom, playerIndex);
+        mirrorZobristKey ^= zobrist(mirrorColumn(column) * columnHeight + rowFromBottom, playerIndex);
+
+        if (isBitboard) {
+            playerBits[playerIndex] |= 1L << (column * columnHeight + rowFromBottom);
+            stateIsStale = true;
+        } else {
+            state[lastPlayerRow][column] = playerIndex;
+        }
+
+        if (evaluator != null) {
+            evaluator.place(lastPlayerRow, column, playerIndex);
+        }
+    }
+
+    public void undo() {
+        if (nSteps == 0)
+            return;
+
+        nSteps--;
+        int column = moves[nSteps];
+        int rowFromBottom = --heights[column];
+        winner = previousWinners[nSteps];
+        zobristKey ^= zobrist(column * columnHeight + rowFromBottom, lastPlayerIndex);
+        mirrorZobristKey ^= zobrist(mirrorColumn(column) * columnHeight + rowFromBottom, lastPlayerIndex);
+        if (evaluator != null) {
+            evaluator.remove(boardSize[0] - 1 - rowFromBottom, column, lastPlayerIndex);
+        }
+
+        if (isBitboard) {
+            playerBits[lastPlayerIndex] &= ~(1L << (column * columnHeight + rowFromBottom));
+            stateIsStale = true;
+        } else {
+            state[boardSize[0] - 1 - rowFromBottom][column] = 0;
+        }
+
+        if (nSteps == 0) {
+            lastPlayerIndex = -1;
+            lastPlayerRow = -1;
+            lastPlayerColumn = -1;
+        } else {
+            lastPlayerColumn = moves[nSteps - 1];
+            int lastRowFromBottom = heights[lastPlayerColumn] - 1;
+            lastPlayerRow = boardSize[0] - 1 - lastRowFromBottom;
+            lastPlayerIndex = getCellOwner(lastPlayerColumn, lastRowFromBottom);
         }
     }
 
+    // fixed mixing function instead of a random table, so keys are the same in every run and for every board size
+    private static long zobrist(int cell, int playerIndex) {
+        long z = (cell * 3L + playerIndex) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
     public boolean gameEnded() {
         //board is unused
         if (lastPlayerIndex == -1) {
@@ -77,11 +222,16 @@ public class Board {
         }
 
         // player won
-        boolean lastPlayerWon =
-                isNInARow(lastPlayerRow, lastPlayerColumn, lastPlayerIndex) ||
-                        isNInACol(lastPlayerRow, lastPlayerColumn, lastPlayerIndex) ||
-                        isNDiagonally(lastPlayerRow, lastPlayerColumn, lastPlayerIndex) ||
-                        isNSkewDiagonally(lastPlayerRow, lastPlayerColumn, lastPlayerIndex);
+        boolean lastPlayerWon;
+        if (isBitboard) {
+            lastPlayerWon = isNConnected(playerBits[lastPlayerIndex]);
+        } else {
+            lastPlayerWon =
+                    isNInARow(lastPlayerRow, lastPlayerColumn, lastPlayerIndex) ||
+                            isNInACol(lastPlayerRow, lastPlayerColumn, lastPlayerIndex) ||
+                            isNDiagonally(lastPlayerRow, lastPlayerColumn, lastPlayerIndex) ||
+                            isNSkewDiagonally(lastPlayerRow, lastPlayerColumn, lastPlayerIndex);
+        }
 
         if (lastPlayerWon) {
             winner = lastPlayerIndex;
@@ -98,6 +248,25 @@ public class Board {
         return false;
     }
 
+    private boolean isNConnected(long bits) {
+        return isNConnected(bits, 1) ||                 // vertical
+                isNConnected(bits, columnHeight) ||      // horizontal
+                isNConnected(bits, columnHeight - 1) ||  // skew diagonal
+                isNConnected(bits, columnHeight + 1);    // diagonal
+    }
+
+    private boolean isNConnected(long bits, int shift) {
+        // the empty sentinel cell on top of every column stops runs from wrapping into the next column
+        long connected = bits;
+        for (int i = 1; i < nToConnect && connected != 0; i++) {
+            int distance = i * shift;
+            if (distance >= BITBOARD_SIZE)
+                return false;
+            connected &= bits >>> distance;
+        }
+        return connected != 0;
+    }
+
     private boolean isNInARow(int row, int col, int playerIndex) {
         int nInARow = 0;
 
@@ -181,6 +350,27 @@ public class Board {
         return false;
     }
 
+    public void setEvaluator(IncrementalEvaluator evaluator) {
+        this.evaluator = evaluator;
+    }
+
+    public int[] getBoardSize() {
+        return boardSize;
+    }
+
+    public int getNToConnect() {
+        return nToConnect;
+    }
+
+    public int getNSteps() {
+        return nSteps;
+    }
+
+    // the column of the given step, counted from 0 for the first step of the game
+    public int getMove(int ply) {
+        return moves[ply];
+    }
+
     public int getWinner() {
         return winner;
     }
@@ -196,4 +386,32 @@ public class Board {
     public int getLastPlayerColumn() {
         return lastPlayerColumn;
     }
+
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
+    public long getMirrorZobristKey() {
+        return mirrorZobristKey;
+    }
+
+    // the same key for a position and its mirror image, for caches which store both as one entry.
+    // Columns stored with it have to be translated with isMirrored() and mirrorColumn()
+    public long getCanonicalKey() {
+        return Math.min(zobristKey, mirrorZobristKey);
+    }
+
+    // true if the canonical key is the one of the mirror image
+    public boolean isMirrored() {
+        return mirrorZobristKey < zobristKey;
+    }
+
+    // a position which is its own mirror image, its steps right of the center are as good as their mirrors
+    public boolean isSymmetric() {
+        return zobristKey == mirrorZobristKey;
+    }
+
+    public int mirrorColumn(int column) {
+        return boardSize[1] - 1 - column;
+    }
 }
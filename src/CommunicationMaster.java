@@ -1,54 +1,114 @@
 import java.io.*;
 import java.util.ArrayList;
-import java.util.Scanner;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
+// Request/answer channel to a child process. The streams are wrapped once and read by a background thread,
+// so an answer can be waited for with a timeout, and the error stream is drained all the time, so a child
+// writing a lot to it can never fill the pipe and block.
 public class CommunicationMaster {
-    private final InputStream inputStream;
-    private final OutputStream outputStream;
-    private final InputStream errorStream;
+    public enum Framing {
+        // a line with the number of lines, then the lines; what the Python binder speaks
+        LINES,
+        // a 4-byte big-endian length, then that many bytes of UTF-8 text
+        BINARY
+    }
+
+    private final FramedChannel channel;
+    // answers in the order they arrive, an IOException if reading failed
+    private final BlockingQueue<Object> answers = new ArrayBlockingQueue<>(16);
+    // answers of timed out requests which are still to come and belong to nobody
+    private int staleAnswers;
 
     public CommunicationMaster(InputStream inputStream, OutputStream outputStream, InputStream errorStream) {
-        this.inputStream = inputStream;
-        this.outputStream = outputStream;
-        this.errorStream = errorStream;
+        this(inputStream, outputStream, errorStream, Framing.LINES);
+    }
+
+    public CommunicationMaster(InputStream inputStream, OutputStream outputStream, InputStream errorStream, Framing framing) {
+        this.channel = new FramedChannel(inputStream, outputStream, framing);
+
+        Thread reader = new Thread(this::readAnswers, "CommunicationMaster-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        Thread errorDrain = new Thread(() -> drainErrors(errorStream), "CommunicationMaster-stderr");
+        errorDrain.setDaemon(true);
+        errorDrain.start();
     }
 
     public ArrayList<String> getAnswer(String msg) throws IOException, RuntimeException {
-        // count lines for header
-        int nMsgLines = 0;
-        if (msg != null) {
-            nMsgLines = (msg + " ").split("\r?\n").length;
-        }
+        return getAnswer(msg, 0);
+    }
 
-        // send message
-        PrintWriter out = new PrintWriter(new OutputStreamWriter(outputStream, UTF_8), true);
-        out.printf("%d\n%s%n", nMsgLines, msg);
+    // waits at most timeoutMillis for the answer, 0 waits forever
+    public synchronized ArrayList<String> getAnswer(String msg, long timeoutMillis) throws IOException {
+        channel.send(msg);
 
-        // wait for answer
-        Scanner input = new Scanner(inputStream);
-        String firstLine;
-        try {
-            firstLine = input.nextLine();
-        } catch (RuntimeException e) {
-            if (errorStream.available() > 0) {
-                Scanner error = new Scanner(errorStream);
-                while (error.hasNextLine()) {
-                    System.err.println(error.nextLine());
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (true) {
+            Object answer;
+            try {
+                if (timeoutMillis <= 0) {
+                    answer = answers.take();
+                } else {
+                    answer = answers.poll(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the answer.");
+            }
+
+            if (answer == null) {
+                staleAnswers++;
+                throw new InterruptedIOException(String.format("No answer within %d ms.", timeoutMillis));
             }
-            throw new RuntimeException("An error occurred during the communication.");
+            if (answer instanceof IOException) {
+                // keep failing for everyone who asks later
+                answers.offer(answer);
+                throw new IOException("An error occurred during the communication.", (IOException) answer);
+            }
+            if (staleAnswers > 0) {
+                staleAnswers--;
+                continue;
+            }
+
+            @SuppressWarnings("unchecked")
+            ArrayList<String> lines = (ArrayList<String>) answer;
+            return lines;
+        }
+    }
+
+    private void readAnswers() {
+        try {
+            while (true) {
+                answers.put(channel.receive());
+            }
+        } catch (IOException e) {
+            answers.offer(e);
+        } catch (RuntimeException e) {
+            // e.g. the child printed something else than a message to stdout, the channel is out of sync for good
+            answers.offer(new IOException("protocol error: " + e.getMessage(), e));
+        } catch (InterruptedException e) {
+            // nobody waits for answers anymore
         }
+    }
 
-        int nAnswerLinesToRead = Integer.parseInt(firstLine);
-        // read full answer message
-        ArrayList<String> lines = new ArrayList<String>();
-        for (int i = 0; i < nAnswerLinesToRead; i++) {
-            String line = input.nextLine();
-            lines.add(line);
+    private static void drainErrors(InputStream errorStream) {
+        try (BufferedReader error = new BufferedReader(new InputStreamReader(errorStream, UTF_8))) {
+            String line;
+            while ((line = error.readLine()) != null) {
+                System.err.println(line);
+            }
+        } catch (IOException e) {
+            // the process is gone
         }
+    }
 
-        return lines;
+    // the child sees the end of its input
+    public void close() throws IOException {
+        channel.close();
     }
 }
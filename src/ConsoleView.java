@@ -1,18 +1,34 @@
+import java.io.PrintStream;
 import java.util.Scanner;
 
 public class ConsoleView extends View {
+    private final PrintStream out;
+
     public ConsoleView(int[] boardSize) {
+        this(boardSize, System.out);
+    }
+
+    public ConsoleView(int[] boardSize, PrintStream out) {
         super(boardSize);
+        this.out = out;
     }
 
+    // the board is written with a single print, so frames of concurrent games sharing the view do not interleave
     @Override
     public void drawBoard(Board board) {
-        String verticalSeparator = "|";
-        System.out.println();
+        out.print(render(board));
+        out.flush();
+    }
+
+    // safe to call from several games at once, every frame is built in its own buffer sized for the board
+    public String render(Board board) {
+        char verticalSeparator = '|';
+        StringBuilder frame = new StringBuilder((boardSize[0] + 3) * (2 * boardSize[1] + 3));
+        frame.append(System.lineSeparator());
         for (int col = 0; col < this.boardSize[1]; col++) {
-            System.out.printf("%s%d", verticalSeparator, col);
+            frame.append(verticalSeparator).append(col);
         }
-        System.out.println(verticalSeparator);
+        frame.append(verticalSeparator).append(System.lineSeparator());
 
         int[][] boardState = board.getState();
         for (int row = 0; row < this.boardSize[0]; row++) {
@@ -23,17 +39,17 @@ public class ConsoleView extends View {
                 } else if (boardState[row][col] == 2) {
                     marker = 'O';
                 }
-                System.out.printf("%s%c", verticalSeparator, marker);
+                frame.append(verticalSeparator).append(marker);
             }
-            System.out.println(verticalSeparator);
+            frame.append(verticalSeparator).append(System.lineSeparator());
         }
-        System.out.println();
-
+        frame.append(System.lineSeparator());
+        return frame.toString();
     }
 
     @Override
     public int getStep(int player) {
-        System.out.printf("Player %d selects col: ", player);
+        out.printf("Player %d selects col: ", player);
         int col = 0;
         while (true) {
             Scanner inputScanner = new Scanner(System.in);
@@ -0,0 +1,43 @@
+// The latest moment a step has to be ready by, on the System.nanoTime() scale. GameLogic cancels it when the
+// time is up; a player which looks at isExpired() while it thinks can then stop and answer with what it has.
+public class Deadline {
+    public static final Deadline NONE = new Deadline(Long.MAX_VALUE);
+
+    private final long nanoTime;
+    private volatile boolean cancelled;
+
+    public Deadline(long nanoTime) {
+        this.nanoTime = nanoTime;
+    }
+
+    public static Deadline afterNanos(long nanos) {
+        return new Deadline(System.nanoTime() + nanos);
+    }
+
+    public boolean isLimited() {
+        return nanoTime != Long.MAX_VALUE;
+    }
+
+    public long getNanoTime() {
+        return nanoTime;
+    }
+
+    // 0 once the time is up, Long.MAX_VALUE without a limit
+    public long remainingNanos() {
+        if (!isLimited()) return Long.MAX_VALUE;
+        return Math.max(0, nanoTime - System.nanoTime());
+    }
+
+    public void cancel() {
+        // NONE is shared by every step without a limit
+        if (this != NONE) cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isExpired() {
+        return cancelled || (isLimited() && System.nanoTime() >= nanoTime);
+    }
+}
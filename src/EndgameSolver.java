@@ -0,0 +1,179 @@
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+// Exact negamax solver for positions with few empty cells.
+//
+// Scores are from the point of view of the player to move: 0 for a draw, positive if it wins and negative
+// if it loses, the sooner the game is won the bigger the score, (nCells + 1 - nSteps) / 2 for winning at once.
+public class EndgameSolver {
+    private final int TABLE_BITS = 20;
+    // stop is asked every this many nodes, a power of two
+    private static final int STOP_CHECK_INTERVAL = 4096;
+
+    private final int nCells;
+    private final int nColumns;
+    private final int[] centerFirst;
+
+    // compact transposition table: upper 32 bits of the canonical key and an upper bound of the score, which is
+    // the same for a position and its mirror image
+    private final int[] tableKeys;
+    private final byte[] tableValues;
+    private final int tableMask;
+    private final int minScore;
+    private final BooleanSupplier stop;
+
+    private long nodes;
+    private boolean aborted;
+    private int bestMove = -1;
+
+    public EndgameSolver(int[] boardSize) {
+        this(boardSize, () -> false);
+    }
+
+    // stop is asked every few thousand nodes whether the solver has to give up
+    public EndgameSolver(int[] boardSize, BooleanSupplier stop) {
+        this.stop = stop;
+        this.nCells = boardSize[0] * boardSize[1];
+        this.nColumns = boardSize[1];
+        this.minScore = -(nCells / 2) - 1;
+
+        this.centerFirst = new int[nColumns];
+        int n = 0;
+        for (int distance = 0; n < nColumns; distance++) {
+            for (int col = 0; col < nColumns; col++) {
+                if (Math.abs(2 * col - (nColumns - 1)) == distance) {
+                    centerFirst[n++] = col;
+                }
+            }
+        }
+
+        this.tableKeys = new int[1 << TABLE_BITS];
+        this.tableValues = new byte[1 << TABLE_BITS];
+        this.tableMask = (1 << TABLE_BITS) - 1;
+    }
+
+    // solves the position for playerToMove, the best step can be read with getBestMove() afterwards;
+    // if stop ends the solver first, isAborted() is true and the score and the step mean nothing
+    public int solve(Board board, int playerToMove) {
+        nodes = 0;
+        aborted = false;
+        bestMove = -1;
+        int score = solveScore(board, playerToMove);
+
+        // the first step which keeps the proven score is a best one
+        for (int col : centerFirst) {
+            if (aborted)
+                break;
+            if (!board.stepIsValid(col))
+                continue;
+            if (bestMove == -1)
+                bestMove = col;
+
+            board.step(playerToMove, col);
+            boolean keepsScore;
+            if (board.gameEnded()) {
+                keepsScore = scoreOfFinished(board, playerToMove) >= score;
+            } else {
+                keepsScore = -negamax(board, 3 - playerToMove, -score, -score + 1) >= score;
+            }
+            board.undo();
+
+            if (keepsScore && !aborted) {
+                bestMove = col;
+                break;
+            }
+        }
+        return score;
+    }
+
+    // null-window searches narrowing [min, max] until the exact score is known
+    private int solveScore(Board board, int playerToMove) {
+        int min = -(nCells - board.getNSteps()) / 2;
+        int max = (nCells + 1 - board.getNSteps()) / 2;
+        while (min < max && !aborted) {
+            int med = min + (max - min) / 2;
+            // probe closer to zero first, most positions are draws or decided late
+            if (med <= 0 && min / 2 < med) med = min / 2;
+            else if (med >= 0 && max / 2 > med) med = max / 2;
+
+            int result = negamax(board, playerToMove, med, med + 1);
+            if (result <= med) max = result;
+            else min = result;
+        }
+        return min;
+    }
+
+    private int scoreOfFinished(Board board, int playerIndex) {
+        if (board.getWinner() == 0) return 0;
+        // board holds the winning step already
+        int score = (nCells + 2 - board.getNSteps()) / 2;
+        return board.getWinner() == playerIndex ? score : -score;
+    }
+
+    private int negamax(Board board, int playerToMove, int alpha, int beta) {
+        if (aborted) return 0;
+        if (++nodes % STOP_CHECK_INTERVAL == 0 && stop.getAsBoolean()) {
+            aborted = true;
+            return 0;
+        }
+        int nSteps = board.getNSteps();
+        if (nSteps == nCells) return 0;
+
+        // win at once if possible
+        for (int col = 0; col < nColumns; col++) {
+            if (!board.stepIsValid(col))
+                continue;
+            board.step(playerToMove, col);
+            boolean won = board.gameEnded() && board.getWinner() == playerToMove;
+            board.undo();
+            if (won) return (nCells + 1 - nSteps) / 2;
+        }
+        if (nSteps + 1 == nCells) return 0;
+
+        // we cannot win with the next step, so the best we can get is winning with the one after
+        int max = (nCells - 1 - nSteps) / 2;
+        long key = board.getCanonicalKey();
+        int slot = (int) key & tableMask;
+        if (tableKeys[slot] == (int) (key >>> 32) && tableValues[slot] != 0) {
+            max = tableValues[slot] + minScore - 1;
+        }
+        if (beta > max) {
+            beta = max;
+            if (alpha >= beta) return beta;
+        }
+
+        for (int col : centerFirst) {
+            if (!board.stepIsValid(col))
+                continue;
+            board.step(playerToMove, col);
+            int score = -negamax(board, 3 - playerToMove, -beta, -alpha);
+            board.undo();
+
+            // the scores of an aborted search are made up and must not reach the table
+            if (aborted) return 0;
+            if (score >= beta) return score;
+            if (score > alpha) alpha = score;
+        }
+
+        tableKeys[slot] = (int) (key >>> 32);
+        tableValues[slot] = (byte) (alpha - minScore + 1);
+        return alpha;
+    }
+
+    public void clear() {
+        Arrays.fill(tableKeys, 0);
+        Arrays.fill(tableValues, (byte) 0);
+    }
+
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+}
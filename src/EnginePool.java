@@ -0,0 +1,179 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Keeps a fixed number of external engine processes running and lends them out one game at a time. A new
+// game is announced to a reused process with its start message instead of starting a new interpreter;
+// processes which crashed or stopped answering are replaced, and all of them are stopped when the pool is
+// closed or the JVM exits.
+public class EnginePool implements AutoCloseable {
+    private static final long DEFAULT_TIMEOUT_MILLIS = 10_000;
+
+    private final List<String> command;
+    private final CommunicationMaster.Framing framing;
+    private final long timeoutMillis;
+    private final BlockingQueue<Engine> idle;
+    private final List<Engine> engines = new CopyOnWriteArrayList<>();
+    private final AtomicInteger respawns = new AtomicInteger();
+    private final Thread shutdownHook;
+    private volatile boolean closed;
+
+    public EnginePool(List<String> command, int size) throws IOException {
+        this(command, size, CommunicationMaster.Framing.LINES, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    // every answer of an engine has to arrive within timeoutMillis, otherwise the engine is replaced
+    public EnginePool(List<String> command, int size, CommunicationMaster.Framing framing, long timeoutMillis) throws IOException {
+        this.command = new ArrayList<>(command);
+        this.framing = framing;
+        this.timeoutMillis = timeoutMillis;
+        this.idle = new ArrayBlockingQueue<>(size);
+        this.shutdownHook = new Thread(this::destroyAll, "EnginePool-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+
+        try {
+            for (int i = 0; i < size; i++) {
+                idle.add(spawn());
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    private Engine spawn() throws IOException {
+        Process process = new ProcessBuilder(command).start();
+        Engine engine = new Engine(process, new CommunicationMaster(process.getInputStream(),
+                process.getOutputStream(), process.getErrorStream(), framing), timeoutMillis);
+        engines.add(engine);
+        // an idle engine which dies is replaced right away, a lent one when it comes back
+        process.onExit().thenRun(() -> {
+            if (!closed && idle.remove(engine)) {
+                replaceIdle(engine);
+            }
+        });
+        return engine;
+    }
+
+    private Engine respawn(Engine engine) throws IOException {
+        engine.destroy();
+        engines.remove(engine);
+        respawns.incrementAndGet();
+        return spawn();
+    }
+
+    private void replaceIdle(Engine engine) {
+        try {
+            idle.add(respawn(engine));
+        } catch (IOException e) {
+            // the dead engine goes back, acquire() tries again
+            idle.add(engine);
+        }
+    }
+
+    // waits for a free engine and starts a new game on it with startMessage
+    public Engine acquire(String startMessage) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("The engine pool is closed.");
+        }
+        Engine engine;
+        try {
+            engine = idle.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for an engine.", e);
+        }
+
+        // a healthy engine answers the start of the game, one more try with a fresh process otherwise
+        IOException failure = null;
+        for (int attempt = 0; attempt < 2; attempt++) {
+            try {
+                if (!engine.isAlive()) {
+                    engine = respawn(engine);
+                }
+                engine.getAnswer(startMessage);
+                return engine;
+            } catch (IOException e) {
+                failure = e;
+                engine.destroy();
+            }
+        }
+        idle.add(engine);
+        throw failure;
+    }
+
+    public void release(Engine engine) {
+        if (closed) {
+            engine.destroy();
+        } else if (engine.isAlive()) {
+            idle.add(engine);
+        } else {
+            replaceIdle(engine);
+        }
+    }
+
+    // number of processes started to replace crashed or unresponsive ones
+    public int getRespawns() {
+        return respawns.get();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        destroyAll();
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // already shutting down
+        }
+    }
+
+    private void destroyAll() {
+        closed = true;
+        for (Engine engine : engines) {
+            engine.destroy();
+        }
+    }
+
+    public static class Engine {
+        private final Process process;
+        private final CommunicationMaster channel;
+        private final long timeoutMillis;
+
+        private Engine(Process process, CommunicationMaster channel, long timeoutMillis) {
+            this.process = process;
+            this.channel = channel;
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        public ArrayList<String> getAnswer(String msg) throws IOException {
+            return channel.getAnswer(msg, timeoutMillis);
+        }
+
+        public boolean isAlive() {
+            return process.isAlive();
+        }
+
+        // closing the input lets a well-behaved engine exit by itself, the rest are killed
+        private void destroy() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // already gone
+            }
+            try {
+                if (!process.waitFor(100, TimeUnit.MILLISECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+import java.io.*;
+import java.util.ArrayList;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+// Blocking reads and writes of whole messages over a pair of streams, in one of CommunicationMaster's framings.
+// Not thread-safe: one thread sends and one thread receives at a time.
+public class FramedChannel implements Closeable {
+    // limits on what the other side may send, checked before anything is allocated for it; the messages of the
+    // protocol are a few short lines
+    static final int MAX_LINES = 64;
+    static final int MAX_LINE_CHARS = 4096;
+    static final int MAX_FRAME_BYTES = 16 * 1024;
+
+    private final CommunicationMaster.Framing framing;
+    private final OutputStream output;
+    private final BufferedReader lineInput;
+    private final DataInputStream binaryInput;
+
+    public FramedChannel(InputStream inputStream, OutputStream outputStream, CommunicationMaster.Framing framing) {
+        this.framing = framing;
+        this.output = new BufferedOutputStream(outputStream);
+        if (framing == CommunicationMaster.Framing.LINES) {
+            this.lineInput = new BufferedReader(new InputStreamReader(inputStream, UTF_8));
+            this.binaryInput = null;
+        } else {
+            this.lineInput = null;
+            this.binaryInput = new DataInputStream(new BufferedInputStream(inputStream));
+        }
+    }
+
+    public void send(String msg) throws IOException {
+        if (framing == CommunicationMaster.Framing.LINES) {
+            StringBuilder frame = new StringBuilder();
+            frame.append(msg == null ? 0 : countLines(msg)).append('\n');
+            if (msg != null) {
+                frame.append(msg).append('\n');
+            }
+            output.write(frame.toString().getBytes(UTF_8));
+        } else {
+            byte[] payload = msg == null ? new byte[0] : msg.getBytes(UTF_8);
+            output.write(payload.length >>> 24);
+            output.write(payload.length >>> 16);
+            output.write(payload.length >>> 8);
+            output.write(payload.length);
+            output.write(payload);
+        }
+        output.flush();
+    }
+
+    // a trailing line break is followed by an empty line, the message is always sent with one more line break
+    private static int countLines(String msg) {
+        int nLines = 1;
+        for (int i = 0; i < msg.length(); i++) {
+            if (msg.charAt(i) == '\n') nLines++;
+        }
+        return nLines;
+    }
+
+    // the lines of the next message
+    public ArrayList<String> receive() throws IOException {
+        return framing == CommunicationMaster.Framing.LINES ? receiveLines() : receiveBinary();
+    }
+
+    private ArrayList<String> receiveLines() throws IOException {
+        String firstLine = readLine();
+        if (firstLine == null) {
+            throw new EOFException("The other side closed the connection.");
+        }
+
+        int nAnswerLinesToRead = Integer.parseInt(firstLine.trim());
+        if (nAnswerLinesToRead < 0 || nAnswerLinesToRead > MAX_LINES) {
+            throw new IOException("Invalid number of lines in a message: " + nAnswerLinesToRead);
+        }
+        ArrayList<String> lines = new ArrayList<>(nAnswerLinesToRead);
+        for (int i = 0; i < nAnswerLinesToRead; i++) {
+            String line = readLine();
+            if (line == null) {
+                throw new EOFException("The connection was closed in the middle of a message.");
+            }
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    // like BufferedReader.readLine, but gives up on lines longer than MAX_LINE_CHARS instead of buffering them
+    private String readLine() throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = lineInput.read()) != -1 && c != '\n') {
+            if (line.length() == MAX_LINE_CHARS) {
+                throw new IOException("A line of a message is longer than " + MAX_LINE_CHARS + " characters.");
+            }
+            line.append((char) c);
+        }
+        if (c == -1 && line.length() == 0) return null;
+        int end = line.length();
+        if (end > 0 && line.charAt(end - 1) == '\r') line.setLength(end - 1);
+        return line.toString();
+    }
+
+    private ArrayList<String> receiveBinary() throws IOException {
+        int length = binaryInput.readInt();
+        if (length < 0 || length > MAX_FRAME_BYTES) {
+            throw new IOException("Invalid message length: " + length);
+        }
+        byte[] payload = new byte[length];
+        binaryInput.readFully(payload);
+
+        ArrayList<String> lines = new ArrayList<>();
+        String text = new String(payload, UTF_8);
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                lines.add(text.substring(start, i));
+                start = i + 1;
+            }
+        }
+        if (start < text.length()) {
+            lines.add(text.substring(start));
+        }
+        return lines;
+    }
+
+    // closes the output, the other side sees the end of its input
+    @Override
+    public void close() throws IOException {
+        output.close();
+    }
+}
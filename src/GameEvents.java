@@ -0,0 +1,143 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Java Flight Recorder events of GameLogic. All of them are disabled by default; while disabled, an event
+// is never committed and the JIT removes the unused instances, so they cost nothing. connect4.jfc enables
+// all of them next to the JDK's own events:
+//   java -XX:StartFlightRecording=filename=game.jfr,settings=default,settings=connect4.jfc Connect4Game
+public final class GameEvents {
+    private GameEvents() {
+    }
+
+    @Name("connect4.GameStart")
+    @Label("Game Start")
+    @Category("Connect4")
+    @Enabled(false)
+    @StackTrace(false)
+    static class GameStart extends Event {
+        @Label("Player 1")
+        String player1;
+
+        @Label("Player 2")
+        String player2;
+
+        @Label("Rows")
+        int rows;
+
+        @Label("Columns")
+        int columns;
+
+        @Label("Pieces to Connect")
+        int nToConnect;
+
+        @Label("Opening Plies")
+        @Description("Steps played before the players took over")
+        int openingPlies;
+    }
+
+    @Name("connect4.Game")
+    @Label("Game")
+    @Description("A whole game, committed when it ends")
+    @Category("Connect4")
+    @Enabled(false)
+    @StackTrace(false)
+    static class Game extends Event {
+        @Label("Player 1")
+        String player1;
+
+        @Label("Player 2")
+        String player2;
+
+        @Label("Winner")
+        @Description("Index of the winning player, 0 for a draw")
+        int winner;
+
+        @Label("Plies")
+        int plies;
+    }
+
+    @Name("connect4.Step")
+    @Label("Player Step")
+    @Description("One call of Player.step")
+    @Category("Connect4")
+    @Enabled(false)
+    @StackTrace(false)
+    static class Step extends Event {
+        @Label("Player Index")
+        int playerIndex;
+
+        @Label("Player Class")
+        String playerClass;
+
+        @Label("Column")
+        int column;
+
+        @Label("Ply")
+        @Description("Number of steps on the board before this one")
+        int ply;
+    }
+
+    @Name("connect4.InvalidStep")
+    @Label("Invalid Step")
+    @Description("A player returned a column it cannot step into")
+    @Category("Connect4")
+    @Enabled(false)
+    static class InvalidStep extends Event {
+        @Label("Player Index")
+        int playerIndex;
+
+        @Label("Player Class")
+        String playerClass;
+
+        @Label("Column")
+        int column;
+
+        @Label("Ply")
+        int ply;
+    }
+
+    @Name("connect4.SearchSummary")
+    @Label("Search Summary")
+    @Description("SearchStats of the search behind a step")
+    @Category("Connect4")
+    @Enabled(false)
+    @StackTrace(false)
+    static class SearchSummary extends Event {
+        @Label("Player Index")
+        int playerIndex;
+
+        @Label("Player Class")
+        String playerClass;
+
+        @Label("Ply")
+        int ply;
+
+        @Label("Nodes")
+        long nodes;
+
+        @Label("Leaf Evaluations")
+        long leafEvaluations;
+
+        @Label("Cutoffs")
+        long cutoffs;
+
+        @Label("First Move Cutoffs")
+        long firstMoveCutoffs;
+
+        @Label("Transposition Hits")
+        long transpositionHits;
+
+        @Label("Depth")
+        int depth;
+
+        @Label("Search Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsedNanos;
+    }
+}
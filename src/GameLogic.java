@@ -1,6 +1,20 @@
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class GameLogic {
+    // what happens to a player whose clock runs out
+    public enum OverrunPolicy {
+        FORFEIT,
+        // the step the player names with getBestStepSoFar() is played, it forfeits if it has none
+        BEST_SO_FAR
+    }
+
+    // how long a player which ran out of time gets to answer with what it has
+    private final long OVERRUN_GRACE_MILLIS = 50;
+    private final int FORFEIT = -1;
 
     private final Player player1;
     private final Player player2;
@@ -10,17 +24,72 @@ public class GameLogic {
     private final int nToConnect;
     private int currentPlayerIndex = 1;
     private int otherPlayerLastStep = -1;
+    // search statistics of the players in this game, indexed by player index
+    private final SearchStatsTotals[] searchStats = new SearchStatsTotals[] {null, new SearchStatsTotals(), new SearchStatsTotals()};
+    // chess clock, indexed by player index; without one every step may take as long as it likes
+    private boolean hasClock;
+    private final long[] remainingNanos = new long[3];
+    private long incrementNanos;
+    private OverrunPolicy overrunPolicy;
+    private int forfeitingPlayer = 0;
+    // steps still running after their player ran out of time, indexed by player index; a CompletableFuture cannot
+    // interrupt its task, so the player's next step has to wait until it is over
+    private final CompletableFuture<?>[] abandonedSteps = new CompletableFuture<?>[3];
+    // false if the last step was taken from getBestStepSoFar() while the player was still searching
+    private boolean stepCompleted;
+    private final int openingPlies;
+    private int winner = -1;
 
     public GameLogic(Player player1, Player player2, View view, int[] boardSize, int nToConnect) {
+        this(player1, player2, view, boardSize, nToConnect, new int[0]);
+    }
+
+    // the game starts from the position after the given columns, played alternately from player 1
+    public GameLogic(Player player1, Player player2, View view, int[] boardSize, int nToConnect, int[] openingSteps) {
         this.player1 = player1;
         this.player2 = player2;
         this.view = view;
         this.boardSize = boardSize;
         this.board = new Board(boardSize, nToConnect);
         this.nToConnect = nToConnect;
+
+        for (int column : openingSteps) {
+            if (!board.stepIsValid(column)) {
+                throw new IllegalArgumentException("Opening step is not valid: " + column);
+            }
+            board.step(this.currentPlayerIndex, column);
+            if (board.gameEnded()) {
+                throw new IllegalArgumentException("The opening already ends the game.");
+            }
+            switchCurrentPlayer();
+            otherPlayerLastStep = column;
+        }
+        this.openingPlies = openingSteps.length;
+    }
+
+    // each player gets baseMillis for the game and incrementMillis more after each of its steps
+    public void setClock(long baseMillis, long incrementMillis, OverrunPolicy overrunPolicy) {
+        this.hasClock = true;
+        this.remainingNanos[1] = TimeUnit.MILLISECONDS.toNanos(baseMillis);
+        this.remainingNanos[2] = TimeUnit.MILLISECONDS.toNanos(baseMillis);
+        this.incrementNanos = TimeUnit.MILLISECONDS.toNanos(incrementMillis);
+        this.overrunPolicy = overrunPolicy;
     }
 
     public int play() {
+        GameEvents.GameStart startEvent = new GameEvents.GameStart();
+        if (startEvent.shouldCommit()) {
+            startEvent.player1 = player1.getClass().getSimpleName();
+            startEvent.player2 = player2.getClass().getSimpleName();
+            startEvent.rows = boardSize[0];
+            startEvent.columns = boardSize[1];
+            startEvent.nToConnect = nToConnect;
+            startEvent.openingPlies = board.getNSteps();
+            startEvent.commit();
+        }
+        GameEvents.Game gameEvent = new GameEvents.Game();
+        gameEvent.begin();
+
         while (true) {
             view.drawBoard(this.board);
             Player p = getCurrentPlayer();
@@ -29,8 +98,37 @@ public class GameLogic {
             List<Integer> validStepColumns = board.getValidSteps();
             Board boardCopy = new Board(this.board);
 
-            playerStepColumn = p.step(boardCopy);
+            GameEvents.Step stepEvent = new GameEvents.Step();
+            stepEvent.begin();
+            playerStepColumn = requestStep(p, boardCopy, validStepColumns);
+            stepEvent.end();
+            if (playerStepColumn == FORFEIT) {
+                forfeitingPlayer = currentPlayerIndex;
+                break;
+            }
+            if (stepEvent.shouldCommit()) {
+                stepEvent.playerIndex = currentPlayerIndex;
+                stepEvent.playerClass = p.getClass().getSimpleName();
+                stepEvent.column = playerStepColumn;
+                stepEvent.ply = board.getNSteps();
+                stepEvent.commit();
+            }
+
+            // the statistics of a step which did not complete are those of the step before
+            SearchStats stats = stepCompleted ? p.getLastSearchStats() : null;
+            if (stats != null) {
+                searchStats[currentPlayerIndex].record(stats);
+                commitSearchSummary(p, stats);
+            }
             if (!validStepColumns.contains(playerStepColumn)) {
+                GameEvents.InvalidStep invalidStepEvent = new GameEvents.InvalidStep();
+                if (invalidStepEvent.shouldCommit()) {
+                    invalidStepEvent.playerIndex = currentPlayerIndex;
+                    invalidStepEvent.playerClass = p.getClass().getSimpleName();
+                    invalidStepEvent.column = playerStepColumn;
+                    invalidStepEvent.ply = board.getNSteps();
+                    invalidStepEvent.commit();
+                }
                 throw new RuntimeException("Returned column is not valid!");
             }
 
@@ -44,8 +142,131 @@ public class GameLogic {
         }
 
         view.drawBoard(board);
+        view.flush();
+
+        winner = forfeitingPlayer != 0 ? 3 - forfeitingPlayer : board.getWinner();
+        gameEvent.end();
+        if (gameEvent.shouldCommit()) {
+            gameEvent.player1 = player1.getClass().getSimpleName();
+            gameEvent.player2 = player2.getClass().getSimpleName();
+            gameEvent.winner = winner;
+            gameEvent.plies = board.getNSteps();
+            gameEvent.commit();
+        }
+
+        return winner;
+    }
+
+    // the column the player steps into or FORFEIT if it ran out of time
+    private int requestStep(Player p, Board boardCopy, List<Integer> validStepColumns) {
+        stepCompleted = true;
+        if (!hasClock) {
+            return p.step(boardCopy);
+        }
+
+        long start = System.nanoTime();
+        CompletableFuture<?> abandonedStep = abandonedSteps[currentPlayerIndex];
+        if (abandonedStep != null) {
+            // waiting for it costs the player its own time
+            if (!awaitFinished(abandonedStep, remainingNanos[currentPlayerIndex])) return FORFEIT;
+            abandonedSteps[currentPlayerIndex] = null;
+        }
+        Deadline deadline = new Deadline(start + remainingNanos[currentPlayerIndex]);
+        CompletableFuture<Integer> future = p.stepAsync(boardCopy, deadline);
+        Integer column = awaitStep(future, remainingNanos[currentPlayerIndex]);
+        if (column == null) {
+            // players which watch the deadline stop and answer soon after it is cancelled
+            deadline.cancel();
+            column = awaitStep(future, TimeUnit.MILLISECONDS.toNanos(OVERRUN_GRACE_MILLIS));
+            if (column == null) abandonedSteps[currentPlayerIndex] = future;
+        }
+        stepCompleted = column != null;
+
+        remainingNanos[currentPlayerIndex] -= System.nanoTime() - start;
+        if (column != null && remainingNanos[currentPlayerIndex] >= 0) {
+            remainingNanos[currentPlayerIndex] += incrementNanos;
+            return column;
+        }
+
+        if (overrunPolicy == OverrunPolicy.FORFEIT) return FORFEIT;
+        if (column == null) column = p.getBestStepSoFar();
+        if (!validStepColumns.contains(column)) return FORFEIT;
+        remainingNanos[currentPlayerIndex] = incrementNanos;
+        return column;
+    }
+
+    // null if the step is not ready within timeoutNanos
+    private Integer awaitStep(CompletableFuture<Integer> future, long timeoutNanos) {
+        try {
+            return future.get(Math.max(0, timeoutNanos), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    // false if the step is still running after timeoutNanos, how it ended does not matter anymore
+    private boolean awaitFinished(CompletableFuture<?> future, long timeoutNanos) {
+        try {
+            future.get(Math.max(0, timeoutNanos), TimeUnit.NANOSECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            return true;
+        }
+    }
+
+    // the finished game with the steps of the opening, under the given player names
+    public GameRecord getRecord(String player1Name, String player2Name) {
+        if (winner == -1) {
+            throw new IllegalStateException("The game is not finished.");
+        }
+        byte[] moves = new byte[board.getNSteps()];
+        for (int ply = 0; ply < moves.length; ply++) {
+            moves[ply] = (byte) board.getMove(ply);
+        }
+        return new GameRecord(boardSize, nToConnect, player1Name, player2Name, winner, forfeitingPlayer != 0,
+                openingPlies, moves);
+    }
+
+    // the player who lost on time, 0 if nobody did
+    public int getForfeitingPlayer() {
+        return forfeitingPlayer;
+    }
+
+    public long getRemainingMillis(int playerIndex) {
+        return TimeUnit.NANOSECONDS.toMillis(remainingNanos[playerIndex]);
+    }
+
+    private void commitSearchSummary(Player p, SearchStats stats) {
+        GameEvents.SearchSummary event = new GameEvents.SearchSummary();
+        if (event.shouldCommit()) {
+            event.playerIndex = currentPlayerIndex;
+            event.playerClass = p.getClass().getSimpleName();
+            event.ply = board.getNSteps();
+            event.nodes = stats.getNodes();
+            event.leafEvaluations = stats.getLeafEvaluations();
+            event.cutoffs = stats.getCutoffs();
+            event.firstMoveCutoffs = stats.getFirstMoveCutoffs();
+            event.transpositionHits = stats.getTranspositionHits();
+            event.depth = stats.getDepth();
+            event.elapsedNanos = stats.getElapsedNanos();
+            event.commit();
+        }
+    }
 
-        return board.getWinner();
+    // can be read while the game is running
+    public SearchStatsTotals getSearchStats(int playerIndex) {
+        return searchStats[playerIndex];
     }
 
     private void switchCurrentPlayer() {
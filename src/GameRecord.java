@@ -0,0 +1,152 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+// One finished game: the geometry, the names of the players, the result and every step from the empty board,
+// the steps of the opening included.
+//
+// binary layout, big-endian:
+//   rows, columns, nToConnect, winner, flags (5 bytes; winner 0 for a draw, flags bit 0 if the loser forfeited)
+//   opening plies, number of steps (2 unsigned shorts)
+//   player 1, player 2 (modified UTF-8 strings as written by DataOutput.writeUTF)
+//   steps, one column per nibble, the first step in the high nibble and a trailing 0 nibble for an odd count
+public class GameRecord {
+    private static final int FORFEIT_FLAG = 1;
+    // a column has to fit into a nibble
+    public static final int MAX_COLUMNS = 16;
+
+    private final int[] boardSize;
+    private final int nToConnect;
+    private final String player1;
+    private final String player2;
+    private final int winner;
+    private final boolean forfeit;
+    private final int openingPlies;
+    private final byte[] moves;
+
+    public GameRecord(int[] boardSize, int nToConnect, String player1, String player2, int winner, boolean forfeit,
+                      int openingPlies, byte[] moves) {
+        if (boardSize[0] > 255 || boardSize[1] > MAX_COLUMNS || moves.length > 0xFFFF) {
+            throw new IllegalArgumentException("The game does not fit into a record.");
+        }
+        this.boardSize = boardSize;
+        this.nToConnect = nToConnect;
+        this.player1 = player1;
+        this.player2 = player2;
+        this.winner = winner;
+        this.forfeit = forfeit;
+        this.openingPlies = openingPlies;
+        this.moves = moves;
+    }
+
+    public void write(DataOutputStream out) throws IOException {
+        out.writeByte(boardSize[0]);
+        out.writeByte(boardSize[1]);
+        out.writeByte(nToConnect);
+        out.writeByte(winner);
+        out.writeByte(forfeit ? FORFEIT_FLAG : 0);
+        out.writeShort(openingPlies);
+        out.writeShort(moves.length);
+        out.writeUTF(player1);
+        out.writeUTF(player2);
+        for (int i = 0; i < moves.length; i += 2) {
+            int low = i + 1 < moves.length ? moves[i + 1] : 0;
+            out.writeByte(moves[i] << 4 | low);
+        }
+    }
+
+    // the next record of the stream or null at its end, a record cut off in the middle is an EOFException
+    public static GameRecord read(DataInputStream in) throws IOException {
+        int rows = in.read();
+        if (rows == -1) return null;
+        int columns = in.readUnsignedByte();
+        int nToConnect = in.readUnsignedByte();
+        int winner = in.readUnsignedByte();
+        int flags = in.readUnsignedByte();
+        int openingPlies = in.readUnsignedShort();
+        int nMoves = in.readUnsignedShort();
+        String player1 = in.readUTF();
+        String player2 = in.readUTF();
+        byte[] moves = new byte[nMoves];
+        for (int i = 0; i < nMoves; i += 2) {
+            int packed = in.readUnsignedByte();
+            moves[i] = (byte) (packed >>> 4);
+            if (i + 1 < nMoves) moves[i + 1] = (byte) (packed & 0xF);
+        }
+        if (winner > 2) {
+            throw new IOException("Corrupt game record, winner " + winner);
+        }
+        return new GameRecord(new int[] {rows, columns}, nToConnect, player1, player2, winner,
+                (flags & FORFEIT_FLAG) != 0, openingPlies, moves);
+    }
+
+    // plays the game on a new board and shows it to visitor after every step, the same board every time
+    public void replay(Consumer<Board> visitor) {
+        Board board = new Board(boardSize, nToConnect);
+        for (int ply = 0; ply < moves.length; ply++) {
+            if (!board.stepIsValid(moves[ply])) {
+                throw new IllegalStateException("The record has an invalid step at ply " + ply);
+            }
+            board.step(ply % 2 == 0 ? 1 : 2, moves[ply]);
+            visitor.accept(board);
+        }
+    }
+
+    // the final position
+    public Board toBoard() {
+        Board board = new Board(boardSize, nToConnect);
+        for (int ply = 0; ply < moves.length; ply++) {
+            board.step(ply % 2 == 0 ? 1 : 2, moves[ply]);
+        }
+        return board;
+    }
+
+    public int[] getBoardSize() {
+        return boardSize;
+    }
+
+    public int getNToConnect() {
+        return nToConnect;
+    }
+
+    public String getPlayer1() {
+        return player1;
+    }
+
+    public String getPlayer2() {
+        return player2;
+    }
+
+    // 0 for a draw
+    public int getWinner() {
+        return winner;
+    }
+
+    // true if the loser ran out of time instead of losing on the board
+    public boolean isForfeit() {
+        return forfeit;
+    }
+
+    public int getOpeningPlies() {
+        return openingPlies;
+    }
+
+    public int getNMoves() {
+        return moves.length;
+    }
+
+    public int getMove(int ply) {
+        return moves[ply];
+    }
+
+    // the steps as a string of column digits, the format of opening files
+    @Override
+    public String toString() {
+        StringBuilder steps = new StringBuilder(moves.length);
+        for (byte move : moves) {
+            steps.append(Character.forDigit(move, MAX_COLUMNS));
+        }
+        return String.format("%s vs %s, winner %d%s: %s", player1, player2, winner, forfeit ? " on time" : "", steps);
+    }
+}
@@ -0,0 +1,89 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Reads a file written by GameRecordWriter one record at a time, so files of any size can be replayed.
+//
+// layout: header | records in the order they were written
+//   header: magic, version (2 ints)
+//   record: see GameRecord
+//
+// usage: GameRecordReader <file> [print]
+public class GameRecordReader implements AutoCloseable {
+    public static final int MAGIC = 0x43344752;
+    public static final int VERSION = 1;
+
+    private final DataInputStream input;
+
+    public GameRecordReader(Path path) throws IOException {
+        this.input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16));
+        try {
+            checkHeader(input, path);
+        } catch (IOException e) {
+            input.close();
+            throw e;
+        }
+    }
+
+    static void checkHeader(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+            checkHeader(in, path);
+        }
+    }
+
+    private static void checkHeader(DataInputStream in, Path path) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not a game record file: " + path);
+        }
+    }
+
+    // the next game or null after the last one
+    public GameRecord next() throws IOException {
+        return GameRecord.read(input);
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    // prints how the players did in the games of the file, every game with print
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: GameRecordReader <file> [print]");
+            System.exit(1);
+        }
+        boolean print = args.length > 1 && args[1].equals("print");
+
+        // "player 1 vs player 2" -> {player 1 wins, draws, player 2 wins}
+        Map<String, long[]> results = new TreeMap<>();
+        long nGames = 0;
+        long nForfeits = 0;
+        long[] nPositions = new long[1];
+        try (GameRecordReader reader = new GameRecordReader(Path.of(args[0]))) {
+            GameRecord record;
+            while ((record = reader.next()) != null) {
+                nGames++;
+                if (record.isForfeit()) nForfeits++;
+                // replaying checks that every step of the record is valid
+                record.replay(board -> nPositions[0]++);
+                long[] counts = results.computeIfAbsent(record.getPlayer1() + " vs " + record.getPlayer2(), key -> new long[3]);
+                counts[record.getWinner() == 1 ? 0 : record.getWinner() == 0 ? 1 : 2]++;
+                if (print) {
+                    System.out.println(record);
+                }
+            }
+        }
+
+        for (Map.Entry<String, long[]> entry : results.entrySet()) {
+            long[] counts = entry.getValue();
+            System.out.printf("%-40s +%d =%d -%d%n", entry.getKey(), counts[0], counts[1], counts[2]);
+        }
+        System.out.printf("%d games, %d lost on time, %.1f steps per game%n", nGames, nForfeits,
+                nGames == 0 ? 0.0 : (double) nPositions[0] / nGames);
+    }
+}
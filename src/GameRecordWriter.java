@@ -0,0 +1,59 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Appends GameRecords to a file, see GameRecordReader for the file layout. Many games can write at once:
+// each record is encoded on the caller's thread and then appended in one piece, so records never interleave.
+// Records are buffered until the buffer fills, flush() or close().
+public class GameRecordWriter implements AutoCloseable {
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private final OutputStream output;
+    private final AtomicLong recordsWritten = new AtomicLong();
+
+    // a new file starts with the file header, records are appended to an existing one
+    public GameRecordWriter(Path path) throws IOException {
+        boolean isNew = !Files.exists(path) || Files.size(path) == 0;
+        if (!isNew) {
+            GameRecordReader.checkHeader(path);
+        }
+        this.output = new BufferedOutputStream(new FileOutputStream(path.toFile(), true), BUFFER_BYTES);
+        if (isNew) {
+            DataOutputStream header = new DataOutputStream(output);
+            header.writeInt(GameRecordReader.MAGIC);
+            header.writeInt(GameRecordReader.VERSION);
+        }
+    }
+
+    public void write(GameRecord record) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        record.write(new DataOutputStream(bytes));
+        synchronized (output) {
+            bytes.writeTo(output);
+        }
+        recordsWritten.incrementAndGet();
+    }
+
+    public void flush() throws IOException {
+        synchronized (output) {
+            output.flush();
+        }
+    }
+
+    public long getRecordsWritten() {
+        return recordsWritten.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (output) {
+            output.close();
+        }
+    }
+}
@@ -0,0 +1,277 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Hosts games for players connecting over TCP, see RemotePlayer for the protocol. Connections are either
+// paired with each other in the order they arrive or each plays against an engine on the server. Every game
+// runs GameLogic on its own thread (a virtual one where available).
+//
+// Connections beyond maxConnections are not accepted until a game ends, they wait in the listen backlog;
+// a player who does not answer within the idle timeout loses the connection.
+//
+// usage: GameServer [port] [max connections] [idle timeout millis] [pair|StudentPlayer|StudentPlayer2]
+//   with the connect4.recordFile system property set, every finished game is appended to that file as a GameRecord
+public class GameServer implements AutoCloseable {
+    private static final int BACKLOG = 1024;
+    // engines on the server play thousands of games at once, so they get small tables and no endgame solver
+    private static final int TRANSPOSITION_TABLE_MEGABYTES = 1;
+    private static final long STATS_INTERVAL_MILLIS = 10_000;
+    // how long a waiting connection is listened to before it is paired
+    private static final int PROBE_TIMEOUT_MILLIS = 1;
+
+    private final int[] boardSize;
+    private final int nToConnect;
+    private final ServerSocket serverSocket;
+    private final Semaphore connectionPermits;
+    private final int idleTimeoutMillis;
+    private final CommunicationMaster.Framing framing;
+    // null if connections are paired with each other
+    private final Tournament.PlayerFactory opponent;
+    private final ExecutorService games = Threads.newThreadPerTaskExecutor("GameServer-game");
+    private GameRecordWriter recordWriter;
+
+    // a paired connection waiting for the next one
+    private Socket waiting;
+    private final AtomicLong acceptedConnections = new AtomicLong();
+    private final AtomicInteger activeGames = new AtomicInteger();
+    private final AtomicLong finishedGames = new AtomicLong();
+    private final AtomicLong failedGames = new AtomicLong();
+
+    public GameServer(int[] boardSize, int nToConnect, int port, int maxConnections, int idleTimeoutMillis,
+                      CommunicationMaster.Framing framing, Tournament.PlayerFactory opponent) throws IOException {
+        this.boardSize = boardSize;
+        this.nToConnect = nToConnect;
+        this.connectionPermits = new Semaphore(maxConnections);
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.framing = framing;
+        this.opponent = opponent;
+        this.serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(port), BACKLOG);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 4000;
+        int maxConnections = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int idleTimeoutMillis = args.length > 2 ? Integer.parseInt(args[2]) : 30_000;
+        String mode = args.length > 3 ? args[3] : "pair";
+
+        Tournament.PlayerFactory opponent;
+        switch (mode) {
+            case "pair":
+                opponent = null;
+                break;
+            case "StudentPlayer":
+                opponent = (playerIndex, boardSize, nToConnect) -> new StudentPlayer(playerIndex, boardSize, nToConnect,
+                        TRANSPOSITION_TABLE_MEGABYTES, 0, 1, null, 0);
+                break;
+            case "StudentPlayer2":
+                opponent = StudentPlayer2::new;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown mode: " + mode);
+        }
+
+        GameServer server = new GameServer(new int[] {6, 7}, 4, port, maxConnections, idleTimeoutMillis,
+                CommunicationMaster.Framing.LINES, opponent);
+        String recordFile = System.getProperty("connect4.recordFile");
+        if (recordFile != null) {
+            GameRecordWriter recordWriter = new GameRecordWriter(Path.of(recordFile));
+            server.setRecordWriter(recordWriter);
+            // the server runs until it is killed, buffered records are written on the way out
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    recordWriter.close();
+                } catch (IOException e) {
+                    // nothing left to do with them
+                }
+            }, "GameServer-records"));
+        }
+        System.out.printf("listening on port %d (%s, %s threads)%n", port, mode,
+                Threads.hasVirtualThreads() ? "virtual" : "platform");
+
+        Thread stats = new Thread(() -> {
+            try {
+                while (true) {
+                    Thread.sleep(STATS_INTERVAL_MILLIS);
+                    System.out.printf("%d active games, %d finished, %d failed%n",
+                            server.getActiveGames(), server.getFinishedGames(), server.getFailedGames());
+                    server.flushRecords();
+                }
+            } catch (InterruptedException e) {
+                // stopped
+            }
+        }, "GameServer-stats");
+        stats.setDaemon(true);
+        stats.start();
+
+        server.serve();
+    }
+
+    // every finished game is written to recordWriter, the players are named after their classes
+    public void setRecordWriter(GameRecordWriter recordWriter) {
+        this.recordWriter = recordWriter;
+    }
+
+    private void flushRecords() {
+        if (recordWriter == null) return;
+        try {
+            recordWriter.flush();
+        } catch (IOException e) {
+            Logger.getLogger("GameServer").log(Level.WARNING, "writing game records failed", e);
+        }
+    }
+
+    // accepts connections until the server is closed
+    public void serve() throws IOException {
+        while (true) {
+            try {
+                connectionPermits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (SocketException e) {
+                if (serverSocket.isClosed()) return;
+                connectionPermits.release();
+                throw e;
+            }
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(idleTimeoutMillis);
+            long connection = acceptedConnections.incrementAndGet();
+
+            if (opponent == null) {
+                pair(socket);
+            } else {
+                // the remote player takes both colors in turns
+                int remoteIndex = connection % 2 == 1 ? 1 : 2;
+                games.execute(() -> play(remoteIndex == 1 ? socket : null, remoteIndex == 2 ? socket : null));
+            }
+        }
+    }
+
+    private synchronized void pair(Socket socket) {
+        if (waiting != null && !isConnected(waiting)) {
+            close(waiting);
+            waiting = null;
+        }
+        if (waiting == null) {
+            waiting = socket;
+            return;
+        }
+        Socket first = waiting;
+        waiting = null;
+        games.execute(() -> play(first, socket));
+    }
+
+    // false if the peer left: clients speak only when spoken to, so anything but silence on a connection which
+    // has not been spoken to yet is the end of it or a client which breaks the protocol
+    private static boolean isConnected(Socket socket) {
+        if (socket.isClosed()) return false;
+        try {
+            int timeout = socket.getSoTimeout();
+            socket.setSoTimeout(PROBE_TIMEOUT_MILLIS);
+            try {
+                socket.getInputStream().read();
+                return false;
+            } finally {
+                socket.setSoTimeout(timeout);
+            }
+        } catch (SocketTimeoutException e) {
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // a null socket is the server's engine
+    private void play(Socket socket1, Socket socket2) {
+        activeGames.incrementAndGet();
+        Player player1 = null;
+        Player player2 = null;
+        try {
+            player1 = createPlayer(1, socket1);
+            player2 = createPlayer(2, socket2);
+            GameLogic game = new GameLogic(player1, player2, new NullView(boardSize), boardSize, nToConnect);
+            int winner = game.play();
+            if (player1 instanceof RemotePlayer) ((RemotePlayer) player1).gameOver(winner);
+            if (player2 instanceof RemotePlayer) ((RemotePlayer) player2).gameOver(winner);
+            finishedGames.incrementAndGet();
+            if (recordWriter != null) {
+                recordWriter.write(game.getRecord(player1.getClass().getSimpleName(), player2.getClass().getSimpleName()));
+            }
+        } catch (IOException | RuntimeException e) {
+            failedGames.incrementAndGet();
+            Logger.getLogger("GameServer").log(Level.FINE, "game failed", e);
+        } finally {
+            activeGames.decrementAndGet();
+            // engines may hold threads of their own
+            close(player1);
+            close(player2);
+            close(socket1);
+            close(socket2);
+        }
+    }
+
+    private static void close(Player player) {
+        if (!(player instanceof AutoCloseable)) return;
+        try {
+            ((AutoCloseable) player).close();
+        } catch (Exception e) {
+            Logger.getLogger("GameServer").log(Level.FINE, "closing a player failed", e);
+        }
+    }
+
+    private Player createPlayer(int playerIndex, Socket socket) throws IOException {
+        if (socket == null) {
+            return opponent.create(playerIndex, boardSize, nToConnect);
+        }
+        return new RemotePlayer(playerIndex, boardSize, nToConnect, socket, framing);
+    }
+
+    private void close(Socket socket) {
+        if (socket == null) return;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // nothing left to do with it
+        }
+        connectionPermits.release();
+    }
+
+    public int getLocalPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int getActiveGames() {
+        return activeGames.get();
+    }
+
+    public long getFinishedGames() {
+        return finishedGames.get();
+    }
+
+    public long getFailedGames() {
+        return failedGames.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        games.shutdownNow();
+    }
+}
@@ -0,0 +1,116 @@
+import java.util.Arrays;
+
+public class IncrementalEvaluator {
+    private final int POINT_FOR_THREAT_OF_THREE = 100;
+    private final int POINT_FOR_THREAT_OF_TWO = 20;
+    private final int POINT_FOR_THREAT_OF_ONE = 3;
+    // bonus per piece by distance from the center column
+    private final int[] CENTER_BONUS = new int[] {5, 4, 2};
+
+    private final int maximizingPlayer;
+    private final int minimizingPlayer;
+    private final int nColumns;
+    private final int windowSize;
+
+    private final LineTable lines;
+    private final int[] cellBonus;
+    // windowValues[maxPieces * (windowSize + 1) + minPieces] is the score of a window with that many pieces
+    private final int[] windowValues;
+
+    private final int[] maxPiecesInWindow;
+    private final int[] minPiecesInWindow;
+    private int score;
+
+    public IncrementalEvaluator(int[] boardSize, int nToConnect, int maximizingPlayer, int minimizingPlayer) {
+        this.maximizingPlayer = maximizingPlayer;
+        this.minimizingPlayer = minimizingPlayer;
+        this.nColumns = boardSize[1];
+        this.windowSize = nToConnect;
+        this.lines = LineTable.forGeometry(boardSize, nToConnect);
+
+        int nCells = boardSize[0] * boardSize[1];
+        this.cellBonus = new int[nCells];
+        for (int cell = 0; cell < nCells; cell++) {
+            // twice the distance from the center, so boards with an even number of columns have two center columns
+            int doubleDistance = Math.abs(2 * (cell % nColumns) - (nColumns - 1));
+            int distance = doubleDistance / 2;
+            cellBonus[cell] = distance < CENTER_BONUS.length ? CENTER_BONUS[distance] : 0;
+        }
+
+        this.windowValues = new int[(windowSize + 1) * (windowSize + 1)];
+        for (int maxPieces = 0; maxPieces <= windowSize; maxPieces++) {
+            for (int minPieces = 0; maxPieces + minPieces <= windowSize; minPieces++) {
+                windowValues[maxPieces * (windowSize + 1) + minPieces] =
+                        threatScore(maxPieces, minPieces) - threatScore(minPieces, maxPieces);
+            }
+        }
+
+        this.maxPiecesInWindow = new int[lines.getNLines()];
+        this.minPiecesInWindow = new int[lines.getNLines()];
+    }
+
+    // a window missing one, two or three pieces of the own color and none of the other one
+    private int threatScore(int ownPieces, int otherPieces) {
+        if (ownPieces == 0 || otherPieces > 0) return 0;
+        int empty = windowSize - ownPieces;
+        if (empty == 1) return POINT_FOR_THREAT_OF_THREE;
+        if (empty == 2) return POINT_FOR_THREAT_OF_TWO;
+        if (empty == 3) return POINT_FOR_THREAT_OF_ONE;
+        return 0;
+    }
+
+    // recomputes the counters from scratch, needed once whenever the evaluator is attached to a board
+    public void reset(Board board) {
+        Arrays.fill(maxPiecesInWindow, 0);
+        Arrays.fill(minPiecesInWindow, 0);
+        score = 0;
+        int[][] state = board.getState();
+        for (int row = 0; row < state.length; row++) {
+            for (int col = 0; col < nColumns; col++) {
+                if (state[row][col] != 0) place(row, col, state[row][col]);
+            }
+        }
+    }
+
+    public void place(int row, int col, int playerIndex) {
+        update(row * nColumns + col, playerIndex, 1);
+    }
+
+    public void remove(int row, int col, int playerIndex) {
+        update(row * nColumns + col, playerIndex, -1);
+    }
+
+    private void update(int cell, int playerIndex, int delta) {
+        int[] counts;
+        if (playerIndex == maximizingPlayer) {
+            counts = maxPiecesInWindow;
+            score += delta * cellBonus[cell];
+        } else if (playerIndex == minimizingPlayer) {
+            counts = minPiecesInWindow;
+            score -= delta * cellBonus[cell];
+        } else {
+            return;
+        }
+
+        for (int i = lines.getCellLinesStart(cell); i < lines.getCellLinesEnd(cell); i++) {
+            int window = lines.getCellLine(i);
+            score -= windowValue(window);
+            counts[window] += delta;
+            score += windowValue(window);
+        }
+    }
+
+    private int windowValue(int window) {
+        return windowValues[maxPiecesInWindow[window] * (windowSize + 1) + minPiecesInWindow[window]];
+    }
+
+    // heuristic score of the position from the maximizing player's point of view
+    public int getScore() {
+        return score;
+    }
+
+    // the same score from playerIndex's point of view
+    public int getScore(int playerIndex) {
+        return playerIndex == maximizingPlayer ? score : -score;
+    }
+}
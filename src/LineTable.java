@@ -0,0 +1,101 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class LineTable {
+    // tables only depend on the geometry, so every evaluator of the same game shares one
+    private static final ConcurrentHashMap<String, LineTable> TABLES = new ConcurrentHashMap<>();
+
+    private final int nRows;
+    private final int nColumns;
+    private final int lineLength;
+
+    // cells of line i are lineCells[i * lineLength] .. lineCells[(i + 1) * lineLength - 1],
+    // cells are indexed as row * nColumns + col with the rows of Board.getState()
+    private final int[] lineCells;
+    // lines through each cell: cellLines[cellLineStart[cell]] .. cellLines[cellLineStart[cell + 1] - 1]
+    private final int[] cellLineStart;
+    private final int[] cellLines;
+
+    private LineTable(int nRows, int nColumns, int lineLength) {
+        this.nRows = nRows;
+        this.nColumns = nColumns;
+        this.lineLength = lineLength;
+        this.lineCells = createLines();
+
+        int nCells = nRows * nColumns;
+        this.cellLineStart = new int[nCells + 1];
+        for (int cell : lineCells) {
+            cellLineStart[cell + 1]++;
+        }
+        for (int cell = 0; cell < nCells; cell++) {
+            cellLineStart[cell + 1] += cellLineStart[cell];
+        }
+        this.cellLines = new int[lineCells.length];
+        int[] filled = new int[nCells];
+        for (int i = 0; i < lineCells.length; i++) {
+            int cell = lineCells[i];
+            cellLines[cellLineStart[cell] + filled[cell]++] = i / lineLength;
+        }
+    }
+
+    public static LineTable forGeometry(int[] boardSize, int nToConnect) {
+        String key = boardSize[0] + "x" + boardSize[1] + "x" + nToConnect;
+        return TABLES.computeIfAbsent(key, k -> new LineTable(boardSize[0], boardSize[1], nToConnect));
+    }
+
+    private int[] createLines() {
+        int[] cells = new int[4 * nRows * nColumns * lineLength];
+        int n = 0;
+        // right, down, down-right, down-left
+        int[][] directions = new int[][] {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+
+        for (int[] direction : directions) {
+            for (int row = 0; row < nRows; row++) {
+                for (int col = 0; col < nColumns; col++) {
+                    int lastRow = row + (lineLength - 1) * direction[0];
+                    int lastCol = col + (lineLength - 1) * direction[1];
+                    if (lastRow < 0 || lastRow >= nRows || lastCol < 0 || lastCol >= nColumns)
+                        continue;
+
+                    for (int i = 0; i < lineLength; i++) {
+                        cells[n++] = (row + i * direction[0]) * nColumns + col + i * direction[1];
+                    }
+                }
+            }
+        }
+
+        return Arrays.copyOf(cells, n);
+    }
+
+    public int getNRows() {
+        return nRows;
+    }
+
+    public int getNColumns() {
+        return nColumns;
+    }
+
+    public int getLineLength() {
+        return lineLength;
+    }
+
+    public int getNLines() {
+        return lineCells.length / lineLength;
+    }
+
+    public int getLineCell(int line, int i) {
+        return lineCells[line * lineLength + i];
+    }
+
+    public int getCellLinesStart(int cell) {
+        return cellLineStart[cell];
+    }
+
+    public int getCellLinesEnd(int cell) {
+        return cellLineStart[cell + 1];
+    }
+
+    public int getCellLine(int i) {
+        return cellLines[i];
+    }
+}
@@ -0,0 +1,120 @@
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Connects many simple bots to a GameServer at once and reports how many games per second it sustains.
+// Every bot plays random valid columns, optionally after thinking for a while so that many games are open at
+// the same time, and reconnects for its next game.
+//
+// usage: LoadGenerator [host] [port] [bots] [games per bot] [think millis]
+public class LoadGenerator {
+    private static final int WAIT_TIMEOUT_MILLIS = 60_000;
+
+    private final String host;
+    private final int port;
+    private final long thinkMillis;
+    private final AtomicLong finishedGames = new AtomicLong();
+    private final AtomicLong failedGames = new AtomicLong();
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicInteger maxOpenConnections = new AtomicInteger();
+
+    public LoadGenerator(String host, int port, long thinkMillis) {
+        this.host = host;
+        this.port = port;
+        this.thinkMillis = thinkMillis;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 4000;
+        int nBots = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+        int gamesPerBot = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+        long thinkMillis = args.length > 4 ? Long.parseLong(args[4]) : 0;
+
+        LoadGenerator generator = new LoadGenerator(host, port, thinkMillis);
+        long start = System.currentTimeMillis();
+        generator.run(nBots, gamesPerBot);
+        double seconds = (System.currentTimeMillis() - start) / 1000.0;
+        System.out.printf("%d bots: %d games finished, %d failed in %.1f s (%.0f bot games/s), at most %d connections open%n",
+                nBots, generator.finishedGames.get(), generator.failedGames.get(), seconds,
+                generator.finishedGames.get() / seconds, generator.maxOpenConnections.get());
+    }
+
+    public void run(int nBots, int gamesPerBot) throws InterruptedException {
+        ExecutorService bots = Threads.newThreadPerTaskExecutor("LoadGenerator-bot");
+        CountDownLatch done = new CountDownLatch(nBots);
+        for (int i = 0; i < nBots; i++) {
+            bots.execute(() -> {
+                try {
+                    for (int game = 0; game < gamesPerBot; game++) {
+                        playGame();
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        bots.shutdown();
+    }
+
+    private void playGame() {
+        Socket socket;
+        try {
+            socket = new Socket(host, port);
+        } catch (IOException e) {
+            failedGames.incrementAndGet();
+            return;
+        }
+        maxOpenConnections.accumulateAndGet(openConnections.incrementAndGet(), Math::max);
+
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            // a bot left without a partner gives up instead of waiting forever
+            socket.setSoTimeout(WAIT_TIMEOUT_MILLIS);
+            FramedChannel channel = new FramedChannel(socket.getInputStream(), socket.getOutputStream(),
+                    CommunicationMaster.Framing.LINES);
+
+            int rows = 0;
+            int[] heights = new int[0];
+            while (true) {
+                ArrayList<String> lines = channel.receive();
+                String message = lines.get(0);
+                if (message.startsWith("{\"winner\"")) {
+                    finishedGames.incrementAndGet();
+                    return;
+                }
+                if (message.startsWith("{")) {
+                    // {"player_index": 1, "board_size": [6, 7], "n_to_connect": 4}
+                    String[] size = message.substring(message.indexOf('[') + 1, message.indexOf(']')).split(",");
+                    rows = Integer.parseInt(size[0].trim());
+                    heights = new int[Integer.parseInt(size[1].trim())];
+                    channel.send("ok");
+                    continue;
+                }
+
+                int lastColumn = Integer.parseInt(message.trim());
+                if (lastColumn >= 0) heights[lastColumn]++;
+                int column;
+                do {
+                    column = ThreadLocalRandom.current().nextInt(heights.length);
+                } while (heights[column] >= rows);
+                heights[column]++;
+                if (thinkMillis > 0) Thread.sleep(thinkMillis);
+                channel.send(String.valueOf(column));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failedGames.incrementAndGet();
+        } catch (IOException | RuntimeException e) {
+            failedGames.incrementAndGet();
+        } finally {
+            openConnections.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,530 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+// Monte Carlo tree search with UCT selection and lightly guided random playouts: a player wins at once when it
+// can and blocks an immediate win of the other player, otherwise it plays a random column. It does not use an
+// evaluation function, so it gets stronger with more time and more threads only.
+//
+// The search is root-parallel: every thread grows its own tree of the same position and the step with the most
+// visits over all trees is played. Nodes live in preallocated arrays, and the subtree of the position after our
+// step and the opponent's answer is kept for the next step.
+public class MctsPlayer extends Player implements AutoCloseable {
+    private static final int DEFAULT_PLAYOUTS = 20_000;
+    private static final int DEFAULT_NODE_CAPACITY = 1 << 19;
+    private static final double EXPLORATION = 1.0;
+    // how many playouts are run between two looks at the clock
+    private final int TIME_CHECK_INTERVAL = 64;
+
+    // results of the step leading to a node, from the point of view of the player who made it
+    private static final byte UNKNOWN = 0;
+    private static final byte WIN = 1;
+    private static final byte DRAW = 2;
+
+    private final long moveTimeMillis;
+    private final int playouts;
+    private final Tree[] trees;
+    private final ExecutorService helperPool;
+    private long deadlineNanos;
+    private volatile Deadline stepDeadline = Deadline.NONE;
+    private volatile int bestStepSoFar = -1;
+    private SearchStats lastSearchStats;
+
+    public MctsPlayer(int playerIndex, int[] boardSize, int nToConnect) {
+        this(playerIndex, boardSize, nToConnect, 0, 1);
+    }
+
+    // with a positive moveTimeMillis the trees grow until the time is up instead of for a fixed number of playouts
+    public MctsPlayer(int playerIndex, int[] boardSize, int nToConnect, long moveTimeMillis, int nThreads) {
+        this(playerIndex, boardSize, nToConnect, moveTimeMillis, nThreads, DEFAULT_PLAYOUTS, DEFAULT_NODE_CAPACITY);
+    }
+
+    // playouts is the budget of a step over all threads without a move time, nodeCapacity the size of every tree
+    public MctsPlayer(int playerIndex, int[] boardSize, int nToConnect, long moveTimeMillis, int nThreads,
+                      int playouts, int nodeCapacity) {
+        super(playerIndex, boardSize, nToConnect);
+        if (boardSize[1] * (boardSize[0] + 1) > 64) {
+            throw new IllegalArgumentException("MctsPlayer needs a board which fits into a bitboard.");
+        }
+        this.moveTimeMillis = moveTimeMillis;
+        this.playouts = playouts;
+        this.trees = new Tree[Math.max(1, nThreads)];
+        for (int i = 0; i < trees.length; i++) {
+            trees[i] = new Tree(nodeCapacity, 0x9E3779B97F4A7C15L * (i + 1));
+        }
+        if (trees.length > 1) {
+            this.helperPool = Executors.newFixedThreadPool(trees.length - 1, runnable -> {
+                Thread thread = new Thread(runnable, "MctsPlayer-helper");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.helperPool = null;
+        }
+    }
+
+    @Override
+    public int step(Board board) {
+        return step(board, Deadline.NONE);
+    }
+
+    // the trees grow until the share of the deadline for this step is used up or the deadline is cancelled
+    @Override
+    public CompletableFuture<Integer> stepAsync(Board board, Deadline deadline) {
+        return CompletableFuture.supplyAsync(() -> step(board, deadline), STEP_THREADS);
+    }
+
+    @Override
+    public int getBestStepSoFar() {
+        return bestStepSoFar;
+    }
+
+    private int step(Board board, Deadline deadline) {
+        stepDeadline = deadline;
+        long startNanos = System.nanoTime();
+        int emptyCells = boardSize[0] * boardSize[1] - board.getNSteps();
+        deadlineNanos = moveTimeMillis > 0 ? startNanos + moveTimeMillis * 1_000_000 : Long.MAX_VALUE;
+        if (deadline.isLimited()) {
+            long share = deadline.remainingNanos() / Math.max(1, (emptyCells + 1) / 2);
+            deadlineNanos = Math.min(deadlineNanos, startNanos + share);
+        }
+
+        // our stones and all stones of the position, we are to move
+        long current = 0;
+        long mask = 0;
+        int[][] state = board.getState();
+        for (int col = 0; col < boardSize[1]; col++) {
+            for (int row = 0; row < boardSize[0]; row++) {
+                int owner = state[boardSize[0] - 1 - row][col];
+                long cell = 1L << (col * (boardSize[0] + 1) + row);
+                if (owner != 0) mask |= cell;
+                if (owner == playerIndex) current |= cell;
+            }
+        }
+
+        int playoutsPerTree = moveTimeMillis > 0 || deadline.isLimited() ? Integer.MAX_VALUE
+                : Math.max(1, playouts / trees.length);
+        List<Future<?>> helperTasks = new ArrayList<>();
+        for (int i = 1; i < trees.length; i++) {
+            Tree tree = trees[i];
+            tree.moveTo(current, mask);
+            helperTasks.add(helperPool.submit(() -> tree.search(playoutsPerTree)));
+        }
+        trees[0].moveTo(current, mask);
+        bestStepSoFar = trees[0].mostVisitedMove();
+        trees[0].search(playoutsPerTree);
+        for (Future<?> helperTask : helperTasks) {
+            try {
+                helperTask.get();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        // the visits of every step summed over all trees
+        long[] visits = new long[boardSize[1]];
+        int provenWin = -1;
+        long nodes = 0;
+        long nPlayouts = 0;
+        int depth = 0;
+        for (Tree tree : trees) {
+            provenWin = Math.max(provenWin, tree.addRootVisits(visits));
+            nodes += tree.nodes;
+            nPlayouts += tree.playouts;
+            depth = Math.max(depth, tree.maxDepth);
+        }
+        int bestMove = provenWin;
+        for (int col = 0; col < boardSize[1] && provenWin == -1; col++) {
+            if (board.stepIsValid(col) && (bestMove == -1 || visits[col] > visits[bestMove])) bestMove = col;
+        }
+
+        SearchStats stats = new SearchStats(nodes, nPlayouts, 0, 0, 0, depth, System.nanoTime() - startNanos);
+        Logger.getLogger("MctsPlayer").fine(stats + " with " + trees.length + " threads");
+        lastSearchStats = stats;
+        SearchStatsTotals.PROCESS.record(stats);
+
+        // the trees follow our step, the opponent's answer is found in the next step
+        for (Tree tree : trees) {
+            tree.rememberStep(bestMove);
+        }
+        return bestMove;
+    }
+
+    @Override
+    public SearchStats getLastSearchStats() {
+        return lastSearchStats;
+    }
+
+    @Override
+    public void close() {
+        if (helperPool != null) {
+            helperPool.shutdown();
+        }
+    }
+
+    // The nodes of one tree. The children of a node are stored next to each other, so a node only needs the
+    // index of its first child and their count; a node's statistics are from the point of view of the player
+    // who made the step leading to it.
+    private static class Arena {
+        private final int[] visits;
+        // 2 for a win and 1 for a draw in every playout through the node
+        private final int[] halfPoints;
+        // -1 while the node is not expanded
+        private final int[] firstChild;
+        private final byte[] childCount;
+        private final byte[] move;
+        private final byte[] result;
+
+        private Arena(int capacity) {
+            visits = new int[capacity];
+            halfPoints = new int[capacity];
+            firstChild = new int[capacity];
+            childCount = new byte[capacity];
+            move = new byte[capacity];
+            result = new byte[capacity];
+        }
+
+        private void copy(int from, Arena to, int toIndex) {
+            to.visits[toIndex] = visits[from];
+            to.halfPoints[toIndex] = halfPoints[from];
+            to.childCount[toIndex] = childCount[from];
+            to.move[toIndex] = move[from];
+            to.result[toIndex] = result[from];
+        }
+    }
+
+    // the state of one search thread
+    private class Tree {
+        private final int capacity;
+        private final int height = boardSize[0] + 1;
+        private final long topRow;
+        private final int[] centerFirst = new int[boardSize[1]];
+        private final int[] path = new int[boardSize[0] * boardSize[1] + 1];
+        private final int[] steps = new int[boardSize[1]];
+        private Arena arena;
+        // the second arena and the old index of every node moved into it, only needed once a subtree is kept
+        private Arena spare;
+        private int[] origin;
+        private int size;
+        private long random;
+
+        // the position of the root and the step we played there, -1 if the root is not our last position
+        private long rootCurrent;
+        private long rootMask;
+        private int playedStep = -1;
+
+        private long nodes;
+        private long playouts;
+        private int maxDepth;
+
+        private Tree(int capacity, long seed) {
+            this.capacity = capacity;
+            this.arena = new Arena(capacity);
+            this.random = seed;
+            long top = 0;
+            for (int col = 0; col < boardSize[1]; col++) {
+                top |= 1L << (col * height + boardSize[0] - 1);
+            }
+            this.topRow = top;
+            int n = 0;
+            for (int distance = 0; n < boardSize[1]; distance++) {
+                for (int col = 0; col < boardSize[1]; col++) {
+                    if (Math.abs(2 * col - (boardSize[1] - 1)) == distance) {
+                        centerFirst[n++] = col;
+                    }
+                }
+            }
+        }
+
+        // makes the position the root, keeping the subtree of our last step and the opponent's answer if it has one
+        private void moveTo(long current, long mask) {
+            int newRoot = -1;
+            if (playedStep >= 0 && arena.firstChild[0] >= 0) {
+                int ourNode = findChild(0, playedStep);
+                long ourStone = play(rootMask, playedStep);
+                long afterOurStep = rootMask | ourStone;
+                if (ourNode >= 0 && arena.firstChild[ourNode] >= 0 && current == (rootCurrent | ourStone)) {
+                    for (int i = 0; i < arena.childCount[ourNode]; i++) {
+                        int child = arena.firstChild[ourNode] + i;
+                        if ((afterOurStep | play(afterOurStep, arena.move[child])) == mask) newRoot = child;
+                    }
+                }
+            }
+
+            if (newRoot >= 0) {
+                keepSubtree(newRoot);
+            } else if (!(playedStep < 0 && size > 0 && rootCurrent == current && rootMask == mask)) {
+                size = 1;
+                clear(0);
+            }
+            rootCurrent = current;
+            rootMask = mask;
+            playedStep = -1;
+            nodes = 0;
+            playouts = 0;
+            maxDepth = 0;
+        }
+
+        private void rememberStep(int step) {
+            playedStep = step;
+        }
+
+        private int findChild(int node, int step) {
+            for (int i = 0; i < arena.childCount[node]; i++) {
+                int child = arena.firstChild[node] + i;
+                if (arena.move[child] == step) return child;
+            }
+            return -1;
+        }
+
+        // copies the subtree breadth first into the spare arena, so the children of a node stay next to each other
+        private void keepSubtree(int newRoot) {
+            if (spare == null) {
+                spare = new Arena(capacity);
+                origin = new int[capacity];
+            }
+            arena.copy(newRoot, spare, 0);
+            origin[0] = newRoot;
+            int newSize = 1;
+            for (int node = 0; node < newSize; node++) {
+                int old = origin[node];
+                if (arena.firstChild[old] < 0) {
+                    spare.firstChild[node] = -1;
+                    continue;
+                }
+                spare.firstChild[node] = newSize;
+                for (int i = 0; i < arena.childCount[old]; i++) {
+                    arena.copy(arena.firstChild[old] + i, spare, newSize);
+                    origin[newSize++] = arena.firstChild[old] + i;
+                }
+            }
+            Arena old = arena;
+            arena = spare;
+            spare = old;
+            size = newSize;
+        }
+
+        private void clear(int node) {
+            arena.visits[node] = 0;
+            arena.halfPoints[node] = 0;
+            arena.firstChild[node] = -1;
+            arena.childCount[node] = 0;
+            arena.result[node] = UNKNOWN;
+        }
+
+        private void search(int maxPlayouts) {
+            Arena arena = this.arena;
+            for (int i = 0; i < maxPlayouts; i++) {
+                if (i % TIME_CHECK_INTERVAL == 0 && i > 0) {
+                    if (System.nanoTime() >= deadlineNanos || stepDeadline.isCancelled()) break;
+                    if (this == trees[0]) bestStepSoFar = mostVisitedMove();
+                }
+                runPlayout(arena);
+                // a winning step or the only valid one needs no more playouts
+                if (arena.childCount[0] == 1) break;
+            }
+        }
+
+        private void runPlayout(Arena arena) {
+            long current = rootCurrent;
+            long mask = rootMask;
+            int node = 0;
+            int depth = 0;
+            path[depth] = node;
+
+            // selection, down to a node which is not expanded or ends the game
+            while (arena.firstChild[node] >= 0 && arena.result[node] == UNKNOWN) {
+                node = select(arena, node);
+                long move = play(mask, arena.move[node]);
+                current ^= mask;
+                mask |= move;
+                path[++depth] = node;
+            }
+            nodes += depth;
+            maxDepth = Math.max(maxDepth, depth);
+
+            int value;
+            if (arena.result[node] == WIN) {
+                value = 2;
+            } else if (arena.result[node] == DRAW) {
+                value = 1;
+            } else {
+                // a node is expanded on its second visit, the root at once
+                if ((arena.visits[node] > 0 || node == 0) && expand(arena, node, current, mask)) {
+                    node = arena.firstChild[node];
+                    long move = play(mask, arena.move[node]);
+                    current ^= mask;
+                    mask |= move;
+                    path[++depth] = node;
+                }
+                if (arena.result[node] == WIN) value = 2;
+                else if (arena.result[node] == DRAW) value = 1;
+                else value = 2 - simulate(current, mask);
+            }
+            playouts++;
+
+            for (int i = depth; i >= 0; i--) {
+                int n = path[i];
+                arena.visits[n]++;
+                arena.halfPoints[n] += value;
+                value = 2 - value;
+            }
+        }
+
+        private int select(Arena arena, int node) {
+            int first = arena.firstChild[node];
+            int count = arena.childCount[node];
+            double logVisits = Math.log(arena.visits[node]);
+            int best = first;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int child = first; child < first + count; child++) {
+                int visits = arena.visits[child];
+                if (visits == 0) return child;
+                double value = arena.halfPoints[child] / (2.0 * visits) + EXPLORATION * Math.sqrt(logVisits / visits);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        // adds the children of a node in center first order, only the winning step if there is one and only the
+        // left half of the steps in a symmetric position. Returns false if the arena is full
+        private boolean expand(Arena arena, int node, long current, long mask) {
+            boolean symmetric = isSymmetric(current, mask);
+            int nSteps = 0;
+            for (int col : centerFirst) {
+                if ((mask & topRow & columnMask(col)) != 0) continue;
+                if (symmetric && 2 * col > boardSize[1] - 1) continue;
+                if (isNConnected(current | play(mask, col))) {
+                    steps[0] = col;
+                    nSteps = 1;
+                    break;
+                }
+                steps[nSteps++] = col;
+            }
+            if (size + nSteps > capacity) return false;
+
+            int first = size;
+            size += nSteps;
+            boolean fillsBoard = Long.bitCount(mask) + 1 == boardSize[0] * boardSize[1];
+            for (int i = 0; i < nSteps; i++) {
+                int child = first + i;
+                clear(child);
+                arena.move[child] = (byte) steps[i];
+                if (isNConnected(current | play(mask, steps[i]))) arena.result[child] = WIN;
+                else if (fillsBoard) arena.result[child] = DRAW;
+            }
+            arena.childCount[node] = (byte) nSteps;
+            arena.firstChild[node] = first;
+            return true;
+        }
+
+        // plays the game to its end from the position, returns 2 if the player to move wins, 1 for a draw and 0 otherwise
+        private int simulate(long current, long mask) {
+            int nCells = boardSize[0] * boardSize[1];
+            int nPlayed = Long.bitCount(mask);
+            int result = 2;
+            while (nPlayed < nCells) {
+                long opponent = current ^ mask;
+                int nSteps = 0;
+                int block = -1;
+                for (int col = 0; col < boardSize[1]; col++) {
+                    if ((mask & topRow & columnMask(col)) != 0) continue;
+                    long move = play(mask, col);
+                    if (isNConnected(current | move)) return result;
+                    if (block == -1 && isNConnected(opponent | move)) block = col;
+                    steps[nSteps++] = col;
+                }
+                int col = block >= 0 ? block : steps[nextRandom(nSteps)];
+                long move = play(mask, col);
+                current ^= mask;
+                mask |= move;
+                nPlayed++;
+                nodes++;
+                result = 2 - result;
+            }
+            return 1;
+        }
+
+        private boolean isSymmetric(long current, long mask) {
+            long column = (1L << boardSize[0]) - 1;
+            for (int col = 0; col < boardSize[1] / 2; col++) {
+                int left = col * height;
+                int right = (boardSize[1] - 1 - col) * height;
+                if (((mask >>> left) & column) != ((mask >>> right) & column)
+                        || ((current >>> left) & column) != ((current >>> right) & column)) return false;
+            }
+            return true;
+        }
+
+        // the cell a stone dropped into col lands on
+        private long play(long mask, int col) {
+            return (mask + (1L << (col * height))) & columnMask(col);
+        }
+
+        private long columnMask(int col) {
+            return ((1L << boardSize[0]) - 1) << (col * height);
+        }
+
+        private boolean isNConnected(long bits) {
+            return isNConnected(bits, 1) || isNConnected(bits, height)
+                    || isNConnected(bits, height - 1) || isNConnected(bits, height + 1);
+        }
+
+        // the empty sentinel cell on top of every column stops runs from wrapping into the next column
+        private boolean isNConnected(long bits, int shift) {
+            long connected = bits;
+            for (int i = 1; i < nToConnect && connected != 0; i++) {
+                int distance = i * shift;
+                if (distance >= 64) return false;
+                connected &= bits >>> distance;
+            }
+            return connected != 0;
+        }
+
+        private int nextRandom(int bound) {
+            random ^= random << 13;
+            random ^= random >>> 7;
+            random ^= random << 17;
+            return (int) ((random >>> 33) * bound >>> 31);
+        }
+
+        private int mostVisitedMove() {
+            int best = -1;
+            int bestVisits = -1;
+            if (arena.firstChild[0] < 0) {
+                for (int col : centerFirst) {
+                    if ((rootMask & topRow & columnMask(col)) == 0) return col;
+                }
+                return -1;
+            }
+            for (int i = 0; i < arena.childCount[0]; i++) {
+                int child = arena.firstChild[0] + i;
+                if (arena.visits[child] > bestVisits) {
+                    bestVisits = arena.visits[child];
+                    best = arena.move[child];
+                }
+            }
+            return best;
+        }
+
+        // adds the visits of the root's children by step, returns a step which wins at once or -1
+        private int addRootVisits(long[] visits) {
+            int provenWin = -1;
+            if (arena.firstChild[0] < 0) return provenWin;
+            for (int i = 0; i < arena.childCount[0]; i++) {
+                int child = arena.firstChild[0] + i;
+                visits[arena.move[child]] += arena.visits[child];
+                if (arena.result[child] == WIN) provenWin = arena.move[child];
+            }
+            return provenWin;
+        }
+    }
+}
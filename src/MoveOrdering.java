@@ -0,0 +1,89 @@
+public class MoveOrdering {
+    private final int PV_MOVE_SCORE = 1 << 30;
+    private final int TT_MOVE_SCORE = 1 << 29;
+    private final int FIRST_KILLER_SCORE = 1 << 28;
+    private final int SECOND_KILLER_SCORE = 1 << 27;
+    private final int MAX_HISTORY_SCORE = 1 << 20;
+
+    private final int nColumns;
+    // position of each column in the center-first order, the fallback when nothing else is known about a step
+    private final int[] centerRank;
+
+    private final int[][] killers;
+    // history[playerIndex][column] grows with every cutoff the step caused
+    private final int[][] history;
+    private final int[][] scores;
+
+    public MoveOrdering(int[] boardSize) {
+        this.nColumns = boardSize[1];
+        int maxPly = boardSize[0] * boardSize[1];
+
+        this.centerRank = new int[nColumns];
+        int n = 0;
+        for (int distance = 0; n < nColumns; distance++) {
+            // doubled distances from the center, so they stay integers for an even number of columns
+            for (int col = 0; col < nColumns; col++) {
+                if (Math.abs(2 * col - (nColumns - 1)) == distance) {
+                    centerRank[col] = n++;
+                }
+            }
+        }
+
+        this.killers = new int[maxPly + 1][2];
+        this.history = new int[3][nColumns];
+        this.scores = new int[maxPly + 1][nColumns];
+        clearKillers();
+    }
+
+    // called before every new search, old killers are about other positions and history is aged
+    public void startSearch() {
+        clearKillers();
+        for (int[] playerHistory : history) {
+            for (int col = 0; col < nColumns; col++) {
+                playerHistory[col] /= 2;
+            }
+        }
+    }
+
+    private void clearKillers() {
+        for (int[] plyKillers : killers) {
+            plyKillers[0] = -1;
+            plyKillers[1] = -1;
+        }
+    }
+
+    // writes the valid steps into steps ordered best first and returns their count
+    public int orderSteps(Board board, int ply, int playerIndex, int pvMove, int ttMove, int[] steps) {
+        int nSteps = board.getValidSteps(steps);
+        int[] stepScores = scores[ply];
+
+        for (int i = 0; i < nSteps; i++) {
+            int col = steps[i];
+            int score;
+            if (col == pvMove) score = PV_MOVE_SCORE;
+            else if (col == ttMove) score = TT_MOVE_SCORE;
+            else if (col == killers[ply][0]) score = FIRST_KILLER_SCORE;
+            else if (col == killers[ply][1]) score = SECOND_KILLER_SCORE;
+            else score = Math.min(history[playerIndex][col], MAX_HISTORY_SCORE) * nColumns + nColumns - centerRank[col];
+
+            // insertion sort, there are only a handful of steps
+            int j = i;
+            while (j > 0 && stepScores[j - 1] < score) {
+                stepScores[j] = stepScores[j - 1];
+                steps[j] = steps[j - 1];
+                j--;
+            }
+            stepScores[j] = score;
+            steps[j] = col;
+        }
+        return nSteps;
+    }
+
+    public void recordCutoff(int ply, int playerIndex, int col, int depth) {
+        if (killers[ply][0] != col) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = col;
+        }
+        history[playerIndex][col] += depth * depth;
+    }
+}
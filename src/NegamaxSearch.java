@@ -0,0 +1,280 @@
+import java.util.function.BooleanSupplier;
+
+// The alpha-beta search shared by the players: negamax with principal variation search, iterative deepening with
+// aspiration windows, and killer, history, transposition table and previous line move ordering.
+//
+// Scores are from the point of view of the player to move. A won game is worth WIN_SCORE minus the number of
+// pieces on the board when it ends, a lost one the negative of that, so faster wins and slower losses score better.
+// The number of pieces is a property of the position and not of the path to it, so these scores can be stored in
+// the transposition table as they are.
+//
+// One instance is used by one thread at a time, it searches on its own copy of the board.
+public class NegamaxSearch {
+    public static final int WIN_SCORE = 1_000_000;
+    private static final int INFINITY = WIN_SCORE + 1;
+    // the first window around the expected score, about half an open three
+    private static final int ASPIRATION_WINDOW = 45;
+    // how many nodes are searched between two looks at stop
+    private final int TIME_CHECK_INTERVAL = 1024;
+
+    private final TranspositionTable transpositionTable;
+    private final BooleanSupplier stop;
+    private final PrincipalVariation principalVariation;
+    private final IncrementalEvaluator evaluator;
+    private final MoveOrdering moveOrdering;
+    // one buffer of steps per ply, so generating steps does not allocate
+    private final int[][] stepBuffers;
+
+    private Board board;
+    private int rootPlayer;
+    private boolean searchAborted;
+    private long nodes;
+    private long leafEvaluations;
+    private long cutoffs;
+    private long firstMoveCutoffs;
+    private long transpositionHits;
+    private long researches;
+    private int completedDepth;
+    private int completedScore;
+    private int bestRootMove = -1;
+    // read by other threads while the search runs
+    private volatile int bestCompletedMove = -1;
+
+    // the evaluation is from playerIndex's point of view; transpositionTable may be null and may be shared with
+    // other searches, stop is asked every few nodes whether the search has to end
+    public NegamaxSearch(int[] boardSize, int nToConnect, int playerIndex, TranspositionTable transpositionTable,
+                         BooleanSupplier stop) {
+        int nCells = boardSize[0] * boardSize[1];
+        this.transpositionTable = transpositionTable;
+        this.stop = stop;
+        this.principalVariation = new PrincipalVariation(nCells);
+        this.evaluator = new IncrementalEvaluator(boardSize, nToConnect, playerIndex, 3 - playerIndex);
+        this.moveOrdering = new MoveOrdering(boardSize);
+        this.stepBuffers = new int[nCells + 1][boardSize[1]];
+    }
+
+    public void prepare(Board position, int playerToMove) {
+        board = new Board(position);
+        evaluator.reset(board);
+        board.setEvaluator(evaluator);
+        rootPlayer = playerToMove;
+        searchAborted = false;
+        nodes = 0;
+        leafEvaluations = 0;
+        cutoffs = 0;
+        firstMoveCutoffs = 0;
+        transpositionHits = 0;
+        researches = 0;
+        completedDepth = 0;
+        bestCompletedMove = -1;
+        principalVariation.reset();
+        moveOrdering.startSearch();
+    }
+
+    // deepens from startDepth until maxDepth, a proven result or stop, and returns the best step of the
+    // deepest completed iteration
+    public int iterate(int startDepth, int maxDepth) {
+        bestCompletedMove = board.getValidSteps().get(0);
+        // the evaluation swings with whose piece was placed last, so a depth is best predicted by the one two plies less deep
+        int[] sameParityScores = new int[2];
+        for (int depth = startDepth; depth <= maxDepth; depth++) {
+            int delta = ASPIRATION_WINDOW;
+            int alpha = -INFINITY;
+            int beta = INFINITY;
+            int previousScore = sameParityScores[depth % 2];
+            if (depth > startDepth + 1 && !isWinScore(previousScore)) {
+                alpha = previousScore - delta;
+                beta = previousScore + delta;
+            }
+
+            int score;
+            while (true) {
+                principalVariation.startIteration();
+                score = negamax(depth, 0, rootPlayer, alpha, beta);
+                if (searchAborted) break;
+                // outside the window the score is only a bound, the window widens on that side and the depth is searched again
+                if (score <= alpha && alpha > -INFINITY) {
+                    alpha = Math.max(-INFINITY, score - delta);
+                } else if (score >= beta && beta < INFINITY) {
+                    beta = Math.min(INFINITY, score + delta);
+                } else {
+                    break;
+                }
+                delta *= 4;
+                researches++;
+            }
+            if (searchAborted) break;
+
+            // only moves of fully searched iterations are trusted
+            bestCompletedMove = bestRootMove;
+            completedDepth = depth;
+            completedScore = score;
+            sameParityScores[depth % 2] = score;
+            if (isWinScore(score)) break;
+        }
+        return bestCompletedMove;
+    }
+
+    private boolean isOutOfTime() {
+        if (!searchAborted && ++nodes % TIME_CHECK_INTERVAL == 0 && stop.getAsBoolean()) {
+            searchAborted = true;
+        }
+        return searchAborted;
+    }
+
+    // searches on the board in place: every step is taken back with undo() before returning,
+    // an aborted search unwinds with meaningless scores that must not be stored or used
+    private int negamax(int depth, int ply, int playerToMove, int alpha, int beta) {
+        principalVariation.enter(ply);
+        if (isOutOfTime()) return 0;
+        if (depth == 0 || board.gameEnded()) {
+            leafEvaluations++;
+            return evaluate(board, evaluator, playerToMove);
+        }
+
+        // no score can beat winning with the next piece or losing only after the opponent's next piece
+        int pieces = board.getNSteps();
+        if (ply > 0) {
+            alpha = Math.max(alpha, -(WIN_SCORE - (pieces + 2)));
+            beta = Math.min(beta, WIN_SCORE - (pieces + 1));
+            if (alpha >= beta) return alpha;
+        }
+
+        // a position and its mirror image share an entry, which stores the step as played in the canonical one
+        long key = board.getCanonicalKey();
+        boolean mirrored = board.isMirrored();
+        int ttMove = -1;
+        if (transpositionTable != null) {
+            long entry = transpositionTable.probe(key);
+            if (entry != 0) {
+                transpositionHits++;
+                ttMove = TranspositionTable.getMove(entry);
+                if (mirrored && ttMove >= 0) ttMove = board.mirrorColumn(ttMove);
+                // the root always has to be searched to get a move for the current position
+                if (ply > 0 && TranspositionTable.getDepth(entry) >= depth) {
+                    int ttScore = TranspositionTable.getScore(entry);
+                    int bound = TranspositionTable.getBound(entry);
+                    if (bound == TranspositionTable.EXACT) return ttScore;
+                    if (bound == TranspositionTable.LOWER_BOUND && ttScore >= beta) return ttScore;
+                    if (bound == TranspositionTable.UPPER_BOUND && ttScore <= alpha) return ttScore;
+                }
+            }
+        }
+        int alphaOriginal = alpha;
+
+        int[] validSteps = stepBuffers[ply];
+        int nValidSteps = moveOrdering.orderSteps(board, ply, playerToMove, principalVariation.previousMove(ply), ttMove, validSteps);
+        if (board.isSymmetric()) {
+            nValidSteps = dropMirroredSteps(validSteps, nValidSteps);
+        }
+
+        int bestScore = -INFINITY;
+        int bestMove = validSteps[0];
+        for (int i = 0; i < nValidSteps; i++) {
+            int col = validSteps[i];
+            board.step(playerToMove, col);
+            int score;
+            if (i == 0) {
+                score = -negamax(depth - 1, ply + 1, 3 - playerToMove, -beta, -alpha);
+            } else {
+                // the later steps only have to be shown worse than the best one, which a null window does cheaply
+                score = -negamax(depth - 1, ply + 1, 3 - playerToMove, -alpha - 1, -alpha);
+                if (score > alpha && score < beta && !searchAborted) {
+                    researches++;
+                    score = -negamax(depth - 1, ply + 1, 3 - playerToMove, -beta, -alpha);
+                }
+            }
+            board.undo();
+            principalVariation.stopFollowing();
+            if (searchAborted) return 0;
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = col;
+                principalVariation.update(ply, col);
+            }
+            alpha = Math.max(alpha, score);
+            if (alpha >= beta) {
+                moveOrdering.recordCutoff(ply, playerToMove, col, depth);
+                cutoffs++;
+                if (i == 0) firstMoveCutoffs++;
+                break;
+            }
+        }
+
+        if (transpositionTable != null) {
+            int bound = TranspositionTable.EXACT;
+            if (bestScore <= alphaOriginal) bound = TranspositionTable.UPPER_BOUND;
+            else if (bestScore >= beta) bound = TranspositionTable.LOWER_BOUND;
+            transpositionTable.store(key, depth, bound, bestScore, mirrored ? board.mirrorColumn(bestMove) : bestMove);
+        }
+
+        if (ply == 0) bestRootMove = bestMove;
+        return bestScore;
+    }
+
+    // in a symmetric position the steps right of the center are mirrors of the ones left of it and score the same,
+    // they are removed keeping the order of the rest. Common in the opening, most of all at the root
+    private int dropMirroredSteps(int[] steps, int nSteps) {
+        int nKept = 0;
+        for (int i = 0; i < nSteps; i++) {
+            if (steps[i] <= board.mirrorColumn(steps[i])) steps[nKept++] = steps[i];
+        }
+        return nKept;
+    }
+
+    // the score of a finished game or the heuristic score of the position for playerToMove
+    private static int evaluate(Board board, IncrementalEvaluator evaluator, int playerToMove) {
+        if (board.gameEnded()) {
+            int winner = board.getWinner();
+            if (winner == 0) return 0;
+            int score = WIN_SCORE - board.getNSteps();
+            return winner == playerToMove ? score : -score;
+        }
+
+        // window and center column scores are maintained by the evaluator as steps are made and taken back
+        return evaluator.getScore(playerToMove);
+    }
+
+    public static boolean isWinScore(int score) {
+        return Math.abs(score) > WIN_SCORE / 2;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getLeafEvaluations() {
+        return leafEvaluations;
+    }
+
+    public long getCutoffs() {
+        return cutoffs;
+    }
+
+    public long getFirstMoveCutoffs() {
+        return firstMoveCutoffs;
+    }
+
+    public long getTranspositionHits() {
+        return transpositionHits;
+    }
+
+    // null window searches which failed high and aspiration windows which failed, each costing a second search
+    public long getResearches() {
+        return researches;
+    }
+
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    // the score of the deepest completed iteration for the player to move at the root
+    public int getCompletedScore() {
+        return completedScore;
+    }
+
+    public int getBestCompletedMove() {
+        return bestCompletedMove;
+    }
+}
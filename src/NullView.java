@@ -0,0 +1,15 @@
+// Draws nothing, for headless games between engines.
+public class NullView extends View {
+    public NullView(int[] boardSize) {
+        super(boardSize);
+    }
+
+    @Override
+    public void drawBoard(Board board) {
+    }
+
+    @Override
+    public int getStep(int player) {
+        throw new UnsupportedOperationException("A headless game has no human players.");
+    }
+}
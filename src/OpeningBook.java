@@ -0,0 +1,81 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Read-only view of a book file written by OpeningBookBuilder. The file is memory-mapped, so opening it
+// costs nothing and only the pages touched by the binary search are ever read.
+//
+// layout: header | entries sorted by key
+//   header: magic, version, rows, columns, nToConnect, number of entries (6 ints)
+//   entry:  canonical key (long), score (int), best column (short), search depth (short)
+// A position and its mirror image share one entry, the column is the one for the position with the canonical key.
+public class OpeningBook {
+    public static final int MAGIC = 0x43344F42;
+    public static final int VERSION = 2;
+    public static final int HEADER_BYTES = 24;
+    public static final int ENTRY_BYTES = 16;
+
+    private final MappedByteBuffer buffer;
+    private final int[] boardSize;
+    private final int nToConnect;
+    private final int nEntries;
+
+    public OpeningBook(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not an opening book: " + path);
+        }
+        this.boardSize = new int[] {buffer.getInt(8), buffer.getInt(12)};
+        this.nToConnect = buffer.getInt(16);
+        this.nEntries = buffer.getInt(20);
+        if ((long) HEADER_BYTES + (long) nEntries * ENTRY_BYTES > buffer.capacity()) {
+            throw new IOException("Truncated opening book: " + path);
+        }
+    }
+
+    public boolean matches(int[] boardSize, int nToConnect) {
+        return this.boardSize[0] == boardSize[0] && this.boardSize[1] == boardSize[1] && this.nToConnect == nToConnect;
+    }
+
+    // offset of the entry of the position or -1 if the book does not know it
+    private int find(long key) {
+        int low = 0;
+        int high = nEntries - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midKey = buffer.getLong(HEADER_BYTES + mid * ENTRY_BYTES);
+            if (midKey < key) {
+                low = mid + 1;
+            } else if (midKey > key) {
+                high = mid - 1;
+            } else {
+                return HEADER_BYTES + mid * ENTRY_BYTES;
+            }
+        }
+        return -1;
+    }
+
+    // the book move for the position or -1 if it is not in the book
+    public int getMove(Board board) {
+        int offset = find(board.getCanonicalKey());
+        if (offset == -1) return -1;
+        int column = buffer.getShort(offset + 12);
+        return board.isMirrored() ? board.mirrorColumn(column) : column;
+    }
+
+    // score of the book move from the point of view of the player to move, only valid if getMove() found the position
+    public int getScore(Board board) {
+        int offset = find(board.getCanonicalKey());
+        return offset == -1 ? 0 : buffer.getInt(offset + 8);
+    }
+
+    public int getNEntries() {
+        return nEntries;
+    }
+}
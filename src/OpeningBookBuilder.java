@@ -0,0 +1,89 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Offline tool: searches every position up to the given number of plies with StudentPlayer and writes
+// the results as an OpeningBook file.
+//
+// usage: OpeningBookBuilder <output file> [plies] [millis per position] [threads]
+public class OpeningBookBuilder {
+    private final int[] boardSize;
+    private final int nToConnect;
+    private final int plies;
+    private final StudentPlayer[] engines;
+    // canonical key -> {score, column in the canonical position, depth}, sorted the way the book is searched
+    private final TreeMap<Long, int[]> entries = new TreeMap<>();
+
+    public OpeningBookBuilder(int[] boardSize, int nToConnect, int plies, long millisPerPosition, int nThreads) {
+        this.boardSize = boardSize;
+        this.nToConnect = nToConnect;
+        this.plies = plies;
+        this.engines = new StudentPlayer[] {
+                null,
+                new StudentPlayer(1, boardSize, nToConnect, 256, millisPerPosition, nThreads),
+                new StudentPlayer(2, boardSize, nToConnect, 256, millisPerPosition, nThreads)
+        };
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: OpeningBookBuilder <output file> [plies] [millis per position] [threads]");
+            System.exit(1);
+        }
+        int plies = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        long millisPerPosition = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+        int nThreads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        OpeningBookBuilder builder = new OpeningBookBuilder(new int[] {6, 7}, 4, plies, millisPerPosition, nThreads);
+        long start = System.currentTimeMillis();
+        builder.build();
+        builder.write(args[0]);
+        System.out.printf("%d positions in %.1f s%n", builder.entries.size(), (System.currentTimeMillis() - start) / 1000.0);
+    }
+
+    public void build() {
+        expand(new Board(boardSize, nToConnect));
+    }
+
+    private void expand(Board board) {
+        // mirror images of positions already in the book are not searched again
+        if (board.getNSteps() >= plies || board.gameEnded() || entries.containsKey(board.getCanonicalKey())) {
+            return;
+        }
+
+        int playerToMove = board.getNSteps() % 2 == 0 ? 1 : 2;
+        StudentPlayer engine = engines[playerToMove];
+        int column = engine.step(new Board(board));
+        int canonicalColumn = board.isMirrored() ? board.mirrorColumn(column) : column;
+        entries.put(board.getCanonicalKey(), new int[] {engine.getLastScore(), canonicalColumn, engine.getLastDepth()});
+        if (entries.size() % 1000 == 0) {
+            System.out.printf("%d positions%n", entries.size());
+        }
+
+        for (int col : board.getValidSteps()) {
+            board.step(playerToMove, col);
+            expand(board);
+            board.undo();
+        }
+    }
+
+    public void write(String path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path)))) {
+            out.writeInt(OpeningBook.MAGIC);
+            out.writeInt(OpeningBook.VERSION);
+            out.writeInt(boardSize[0]);
+            out.writeInt(boardSize[1]);
+            out.writeInt(nToConnect);
+            out.writeInt(entries.size());
+            for (Map.Entry<Long, int[]> entry : entries.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeInt(entry.getValue()[0]);
+                out.writeShort(entry.getValue()[1]);
+                out.writeShort(entry.getValue()[2]);
+            }
+        }
+    }
+}
@@ -1,4 +1,10 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
 public abstract class Player {
+    // runs the blocking step() of players which do not implement stepAsync() themselves
+    protected static final ExecutorService STEP_THREADS = Threads.newThreadPerTaskExecutor("Player-step");
+
     protected final int playerIndex;
     protected final int[] boardSize;
     protected final int nToConnect;
@@ -10,4 +16,20 @@ public abstract class Player {
     }
 
     public abstract int step(Board board);
-}
\ No newline at end of file
+
+    // the step as a future which should complete before the deadline. Players which can stop early override it
+    // and answer with their best step so far once deadline.isExpired(), this one just runs step() on another thread
+    public CompletableFuture<Integer> stepAsync(Board board, Deadline deadline) {
+        return CompletableFuture.supplyAsync(() -> step(board), STEP_THREADS);
+    }
+
+    // what the player would answer if it had to right now, -1 if it does not know; used when it runs out of time
+    public int getBestStepSoFar() {
+        return -1;
+    }
+
+    // statistics of the search behind the last step, null for players which do not search
+    public SearchStats getLastSearchStats() {
+        return null;
+    }
+}
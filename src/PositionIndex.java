@@ -0,0 +1,160 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Read-only view of an index file written by PositionIndexBuilder: for every position of the indexed games,
+// how often each step was played there and how those games ended. The file is memory-mapped in segments, so
+// opening it costs nothing, files bigger than one mapping work, and a lookup is a binary search which reads
+// the mapped pages directly without copying them to the heap.
+//
+// layout: header | entries sorted by key, then column
+//   header: magic, version, rows, columns, nToConnect, unused (6 ints), number of entries (long)
+//   entry:  canonical key (long), wins, draws, losses (unsigned ints), column (short), unused (short)
+// Results are from the point of view of the player who played the step. A position and its mirror image share
+// their entries, the columns are those of the position with the canonical key; in a symmetric position a step
+// and its mirror are counted together under the column left of the center.
+public class PositionIndex {
+    public static final int MAGIC = 0x43345049;
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 32;
+    public static final int ENTRY_BYTES = 24;
+    // entries per mapped segment, the entries of one position may be split between two of them
+    private static final int SEGMENT_ENTRIES = (1 << 30) / ENTRY_BYTES;
+
+    private final MappedByteBuffer[] segments;
+    private final int[] boardSize;
+    private final int nToConnect;
+    private final long nEntries;
+
+    public PositionIndex(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Not a position index: " + path);
+            }
+            // the mappings stay valid after the channel is closed
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("Not a position index: " + path);
+            }
+            this.boardSize = new int[] {header.getInt(8), header.getInt(12)};
+            this.nToConnect = header.getInt(16);
+            this.nEntries = header.getLong(24);
+            if (HEADER_BYTES + nEntries * ENTRY_BYTES > channel.size()) {
+                throw new IOException("Truncated position index: " + path);
+            }
+
+            int nSegments = (int) ((nEntries + SEGMENT_ENTRIES - 1) / SEGMENT_ENTRIES);
+            this.segments = new MappedByteBuffer[nSegments];
+            for (int i = 0; i < nSegments; i++) {
+                long first = (long) i * SEGMENT_ENTRIES;
+                long count = Math.min(SEGMENT_ENTRIES, nEntries - first);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + first * ENTRY_BYTES, count * ENTRY_BYTES);
+            }
+        }
+    }
+
+    public boolean matches(int[] boardSize, int nToConnect) {
+        return this.boardSize[0] == boardSize[0] && this.boardSize[1] == boardSize[1] && this.nToConnect == nToConnect;
+    }
+
+    private long getKey(long entry) {
+        return segments[(int) (entry / SEGMENT_ENTRIES)].getLong((int) (entry % SEGMENT_ENTRIES) * ENTRY_BYTES);
+    }
+
+    private long getCount(long entry, int field) {
+        int offset = (int) (entry % SEGMENT_ENTRIES) * ENTRY_BYTES + 8 + 4 * field;
+        return Integer.toUnsignedLong(segments[(int) (entry / SEGMENT_ENTRIES)].getInt(offset));
+    }
+
+    private int getColumn(long entry) {
+        return segments[(int) (entry / SEGMENT_ENTRIES)].getShort((int) (entry % SEGMENT_ENTRIES) * ENTRY_BYTES + 20);
+    }
+
+    private void checkBoard(Board board) {
+        if (!matches(board.getBoardSize(), board.getNToConnect())) {
+            throw new IllegalArgumentException("The position index was built for another board.");
+        }
+    }
+
+    // the first entry of the position or -1 if the index does not know it
+    private long find(long key) {
+        long low = 0;
+        long high = nEntries;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (getKey(mid) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low < nEntries && getKey(low) == key ? low : -1;
+    }
+
+    // writes the steps played in the position into columns and their wins, draws and losses for the player to
+    // move into results (three per step), returns the number of steps; nothing is allocated.
+    // columns needs room for one step per column, results for three
+    public int getSteps(Board board, int[] columns, long[] results) {
+        checkBoard(board);
+        long key = board.getCanonicalKey();
+        long entry = find(key);
+        if (entry == -1) return 0;
+
+        boolean mirrored = board.isMirrored();
+        int nSteps = 0;
+        for (; entry < nEntries && getKey(entry) == key; entry++) {
+            int column = getColumn(entry);
+            columns[nSteps] = mirrored ? board.mirrorColumn(column) : column;
+            results[3 * nSteps] = getCount(entry, 0);
+            results[3 * nSteps + 1] = getCount(entry, 1);
+            results[3 * nSteps + 2] = getCount(entry, 2);
+            nSteps++;
+        }
+        return nSteps;
+    }
+
+    // the number of indexed games which passed through the position
+    public long getGames(Board board) {
+        checkBoard(board);
+        long key = board.getCanonicalKey();
+        long entry = find(key);
+        if (entry == -1) return 0;
+
+        long nGames = 0;
+        for (; entry < nEntries && getKey(entry) == key; entry++) {
+            nGames += getCount(entry, 0) + getCount(entry, 1) + getCount(entry, 2);
+        }
+        return nGames;
+    }
+
+    // the step with the best average result for the player to move among those played at least minGames times,
+    // a draw counting half a win; -1 if there is none
+    public int getBestStep(Board board, long minGames) {
+        checkBoard(board);
+        long key = board.getCanonicalKey();
+        long entry = find(key);
+        if (entry == -1) return -1;
+
+        int bestColumn = -1;
+        double bestScore = -1;
+        for (; entry < nEntries && getKey(entry) == key; entry++) {
+            long wins = getCount(entry, 0);
+            long draws = getCount(entry, 1);
+            long nGames = wins + draws + getCount(entry, 2);
+            if (nGames == 0 || nGames < minGames) continue;
+            double score = (wins + 0.5 * draws) / nGames;
+            if (score > bestScore) {
+                bestScore = score;
+                bestColumn = getColumn(entry);
+            }
+        }
+        if (bestColumn == -1) return -1;
+        return board.isMirrored() ? board.mirrorColumn(bestColumn) : bestColumn;
+    }
+
+    public long getNEntries() {
+        return nEntries;
+    }
+}
@@ -0,0 +1,340 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// Offline tool: counts the results of every step played in the positions of recorded games and writes them as a
+// PositionIndex file. Any number of games can be indexed: counts are aggregated in a fixed-size table, which is
+// written to a sorted run file whenever it fills, and the runs are merged into the index at the end.
+//
+// usage: PositionIndexBuilder <output file> <max plies, 0 for all> <game record file>...
+//   the index is for the board of the first recorded game, games on other boards are skipped
+public class PositionIndexBuilder {
+    private static final int DEFAULT_TABLE_SLOTS = 1 << 22;
+    private static final int RUN_BUFFER_BYTES = 1 << 16;
+
+    private final int[] boardSize;
+    private final int nToConnect;
+    private final int maxPlies;
+
+    // open addressing table of (canonical key, column) -> results, columns are stored + 1 so that 0 marks a free slot
+    private final long[] keys;
+    private final byte[] columns;
+    private final int[] wins;
+    private final int[] draws;
+    private final int[] losses;
+    private final int slotMask;
+    private final int maxSize;
+    private int size;
+
+    private final Path runDirectory;
+    private final List<Path> runs = new ArrayList<>();
+    private long nGames;
+    private long nSkippedGames;
+    private long nPositions;
+
+    public PositionIndexBuilder(int[] boardSize, int nToConnect, int maxPlies) throws IOException {
+        this(boardSize, nToConnect, maxPlies, DEFAULT_TABLE_SLOTS);
+    }
+
+    // tableSlots is rounded down to a power of two, the table takes 21 bytes per slot
+    public PositionIndexBuilder(int[] boardSize, int nToConnect, int maxPlies, int tableSlots) throws IOException {
+        this.boardSize = boardSize;
+        this.nToConnect = nToConnect;
+        this.maxPlies = maxPlies > 0 ? maxPlies : boardSize[0] * boardSize[1];
+        int slots = Integer.highestOneBit(Math.max(16, tableSlots));
+        this.keys = new long[slots];
+        this.columns = new byte[slots];
+        this.wins = new int[slots];
+        this.draws = new int[slots];
+        this.losses = new int[slots];
+        this.slotMask = slots - 1;
+        this.maxSize = slots / 4 * 3;
+        this.runDirectory = Files.createTempDirectory("connect4-index");
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("usage: PositionIndexBuilder <output file> <max plies, 0 for all> <game record file>...");
+            System.exit(1);
+        }
+        GameRecord first = null;
+        for (int i = 2; i < args.length && first == null; i++) {
+            try (GameRecordReader reader = new GameRecordReader(Path.of(args[i]))) {
+                first = reader.next();
+            }
+        }
+        if (first == null) {
+            System.err.println("The record files hold no games.");
+            System.exit(1);
+        }
+        PositionIndexBuilder builder = new PositionIndexBuilder(first.getBoardSize(), first.getNToConnect(),
+                Integer.parseInt(args[1]));
+        System.out.printf("indexing %dx%d boards, connect %d%n", first.getBoardSize()[0], first.getBoardSize()[1],
+                first.getNToConnect());
+        long start = System.currentTimeMillis();
+        for (int i = 2; i < args.length; i++) {
+            builder.addFile(Path.of(args[i]));
+        }
+        long nEntries = builder.write(Path.of(args[0]));
+        System.out.printf("%d games (%d of another geometry skipped), %d positions, %d entries in %.1f s%n",
+                builder.nGames, builder.nSkippedGames, builder.nPositions, nEntries,
+                (System.currentTimeMillis() - start) / 1000.0);
+    }
+
+    public void addFile(Path path) throws IOException {
+        try (GameRecordReader reader = new GameRecordReader(path)) {
+            GameRecord record;
+            while ((record = reader.next()) != null) {
+                add(record);
+            }
+        }
+    }
+
+    public void add(GameRecord record) throws IOException {
+        int[] size = record.getBoardSize();
+        if (size[0] != boardSize[0] || size[1] != boardSize[1] || record.getNToConnect() != nToConnect) {
+            nSkippedGames++;
+            return;
+        }
+        nGames++;
+
+        Board board = new Board(boardSize, nToConnect);
+        int nPlies = Math.min(record.getNMoves(), maxPlies);
+        for (int ply = 0; ply < nPlies; ply++) {
+            int player = ply % 2 == 0 ? 1 : 2;
+            int column = record.getMove(ply);
+            // the column as played in the canonical position, a step and its mirror are one in a symmetric one
+            int canonicalColumn = column;
+            if (board.isSymmetric()) canonicalColumn = Math.min(column, board.mirrorColumn(column));
+            else if (board.isMirrored()) canonicalColumn = board.mirrorColumn(column);
+            int result = record.getWinner() == 0 ? 0 : record.getWinner() == player ? 1 : -1;
+            count(board.getCanonicalKey(), canonicalColumn, result);
+            nPositions++;
+            board.step(player, column);
+        }
+    }
+
+    private void count(long key, int column, int result) throws IOException {
+        long hash = (key ^ column) * 0x9E3779B97F4A7C15L;
+        int slot = (int) (hash >>> 32) & slotMask;
+        while (columns[slot] != 0 && (keys[slot] != key || columns[slot] != column + 1)) {
+            slot = (slot + 1) & slotMask;
+        }
+        if (columns[slot] == 0) {
+            keys[slot] = key;
+            columns[slot] = (byte) (column + 1);
+            wins[slot] = 0;
+            draws[slot] = 0;
+            losses[slot] = 0;
+            size++;
+        }
+        if (result > 0) wins[slot]++;
+        else if (result == 0) draws[slot]++;
+        else losses[slot]++;
+
+        if (size >= maxSize) {
+            writeRun();
+        }
+    }
+
+    // sorts the table into a new run file and empties it.
+    // run entry: key (long), column (byte), wins, draws, losses (ints)
+    private void writeRun() throws IOException {
+        // the used slots are moved to the front, which the hash lookups no longer need
+        int n = 0;
+        for (int slot = 0; slot <= slotMask; slot++) {
+            if (columns[slot] == 0) continue;
+            move(slot, n++);
+        }
+        sort(0, n - 1);
+
+        Path run = runDirectory.resolve("run" + runs.size());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), RUN_BUFFER_BYTES))) {
+            for (int i = 0; i < n; i++) {
+                out.writeLong(keys[i]);
+                out.writeByte(columns[i] - 1);
+                out.writeInt(wins[i]);
+                out.writeInt(draws[i]);
+                out.writeInt(losses[i]);
+            }
+        }
+        runs.add(run);
+
+        for (int i = 0; i < n; i++) {
+            columns[i] = 0;
+        }
+        size = 0;
+    }
+
+    // merges the runs into the index file and returns its number of entries
+    public long write(Path path) throws IOException {
+        if (size > 0 || runs.isEmpty()) {
+            writeRun();
+        }
+
+        PriorityQueue<Run> queue = new PriorityQueue<>((a, b) ->
+                a.key != b.key ? Long.compare(a.key, b.key) : Integer.compare(a.column, b.column));
+        long nEntries = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), RUN_BUFFER_BYTES))) {
+            out.writeInt(PositionIndex.MAGIC);
+            out.writeInt(PositionIndex.VERSION);
+            out.writeInt(boardSize[0]);
+            out.writeInt(boardSize[1]);
+            out.writeInt(nToConnect);
+            out.writeInt(0);
+            // the number of entries is filled in when it is known
+            out.writeLong(0);
+
+            for (Path run : runs) {
+                Run reader = new Run(run);
+                if (reader.next()) queue.add(reader);
+            }
+            while (!queue.isEmpty()) {
+                Run first = queue.poll();
+                long key = first.key;
+                int column = first.column;
+                long entryWins = 0;
+                long entryDraws = 0;
+                long entryLosses = 0;
+                Run run = first;
+                // every run holds a (key, column) pair at most once
+                while (true) {
+                    entryWins += Integer.toUnsignedLong(run.wins);
+                    entryDraws += Integer.toUnsignedLong(run.draws);
+                    entryLosses += Integer.toUnsignedLong(run.losses);
+                    if (run.next()) queue.add(run);
+                    else run.close();
+                    if (queue.isEmpty() || queue.peek().key != key || queue.peek().column != column) break;
+                    run = queue.poll();
+                }
+
+                out.writeLong(key);
+                out.writeInt(saturate(entryWins));
+                out.writeInt(saturate(entryDraws));
+                out.writeInt(saturate(entryLosses));
+                out.writeShort(column);
+                out.writeShort(0);
+                nEntries++;
+            }
+        } finally {
+            for (Run run : queue) {
+                run.close();
+            }
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+            runs.clear();
+            Files.deleteIfExists(runDirectory);
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.seek(PositionIndex.HEADER_BYTES - 8);
+            file.writeLong(nEntries);
+        }
+        return nEntries;
+    }
+
+    // counts are stored as unsigned ints
+    private static int saturate(long count) {
+        return (int) Math.min(count, 0xFFFFFFFFL);
+    }
+
+    // quicksort of the table's parallel arrays by key, then column
+    private void sort(int low, int high) {
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            long pivotKey = keys[mid];
+            int pivotColumn = columns[mid];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (compare(i, pivotKey, pivotColumn) < 0) i++;
+                while (compare(j, pivotKey, pivotColumn) > 0) j--;
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            // recursing into the smaller half keeps the stack shallow
+            if (j - low < high - i) {
+                sort(low, j);
+                low = i;
+            } else {
+                sort(i, high);
+                high = j;
+            }
+        }
+    }
+
+    private int compare(int slot, long key, int column) {
+        if (keys[slot] != key) return Long.compare(keys[slot], key);
+        return Integer.compare(columns[slot], column);
+    }
+
+    private void swap(int a, int b) {
+        long key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        byte column = columns[a];
+        columns[a] = columns[b];
+        columns[b] = column;
+        int count = wins[a];
+        wins[a] = wins[b];
+        wins[b] = count;
+        count = draws[a];
+        draws[a] = draws[b];
+        draws[b] = count;
+        count = losses[a];
+        losses[a] = losses[b];
+        losses[b] = count;
+    }
+
+    private void move(int from, int to) {
+        if (from == to) return;
+        keys[to] = keys[from];
+        columns[to] = columns[from];
+        wins[to] = wins[from];
+        draws[to] = draws[from];
+        losses[to] = losses[from];
+        columns[from] = 0;
+    }
+
+    // the current entry of a sorted run file during the merge
+    private static class Run {
+        private final DataInputStream input;
+        private long key;
+        private int column;
+        private int wins;
+        private int draws;
+        private int losses;
+
+        private Run(Path path) throws IOException {
+            this.input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), RUN_BUFFER_BYTES));
+        }
+
+        private boolean next() throws IOException {
+            try {
+                key = input.readLong();
+            } catch (EOFException e) {
+                return false;
+            }
+            column = input.readByte();
+            wins = input.readInt();
+            draws = input.readInt();
+            losses = input.readInt();
+            return true;
+        }
+
+        private void close() throws IOException {
+            input.close();
+        }
+    }
+}
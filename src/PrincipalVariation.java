@@ -0,0 +1,61 @@
+public class PrincipalVariation {
+    // triangular table: lines[ply] holds the best line found from ply onwards in the current iteration
+    private final int[][] lines;
+    private final int[] lengths;
+
+    private final int[] previous;
+    private int previousLength = 0;
+    private boolean followingPrevious = false;
+
+    public PrincipalVariation(int maxPly) {
+        this.lines = new int[maxPly + 1][maxPly + 1];
+        this.lengths = new int[maxPly + 1];
+        this.previous = new int[maxPly + 1];
+    }
+
+    public void reset() {
+        previousLength = 0;
+        lengths[0] = 0;
+        followingPrevious = false;
+    }
+
+    // keeps the line of the last completed iteration for ordering the next one
+    public void startIteration() {
+        previousLength = lengths[0];
+        System.arraycopy(lines[0], 0, previous, 0, previousLength);
+        followingPrevious = previousLength > 0;
+    }
+
+    public void enter(int ply) {
+        lengths[ply] = ply;
+    }
+
+    public void update(int ply, int move) {
+        lines[ply][ply] = move;
+        int childLength = lengths[ply + 1];
+        for (int i = ply + 1; i < childLength; i++) {
+            lines[ply][i] = lines[ply + 1][i];
+        }
+        lengths[ply] = Math.max(ply + 1, childLength);
+    }
+
+    // the move of the previous iteration's line at this ply while the search is still walking along it, otherwise -1
+    public int previousMove(int ply) {
+        if (!followingPrevious || ply >= previousLength) {
+            return -1;
+        }
+        return previous[ply];
+    }
+
+    public void stopFollowing() {
+        followingPrevious = false;
+    }
+
+    public int getLength() {
+        return lengths[0];
+    }
+
+    public int getMove(int ply) {
+        return lines[0][ply];
+    }
+}
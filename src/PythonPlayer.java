@@ -1,36 +1,53 @@
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 
-public class PythonPlayer extends Player {
-    CommunicationMaster cm = null;
+public class PythonPlayer extends Player implements AutoCloseable {
+    public static final List<String> DEFAULT_COMMAND = List.of(
+//            "python3",
+            "python",
+//            "student_code_binder.py");
+            "python/student_code_binder.py");
+
+    private final EnginePool pool;
+    // the player started the pool itself and stops it with close()
+    private final boolean ownsPool;
+    private EnginePool.Engine engine;
 
     public PythonPlayer(int playerIndex, int[] boardSize, int nToConnect) {
+        this(playerIndex, boardSize, nToConnect, startOwnPool(), true);
+    }
+
+    // plays with an engine process borrowed from the pool, close() gives it back for the next game
+    public PythonPlayer(int playerIndex, int[] boardSize, int nToConnect, EnginePool pool) {
+        this(playerIndex, boardSize, nToConnect, pool, false);
+    }
+
+    private PythonPlayer(int playerIndex, int[] boardSize, int nToConnect, EnginePool pool, boolean ownsPool) {
         super(playerIndex, boardSize, nToConnect);
+        this.pool = pool;
+        this.ownsPool = ownsPool;
 
-        // run student code
-        ProcessBuilder processBuilder = new ProcessBuilder(
-//                "python3",
-                 "python",
-//                "student_code_binder.py");
-                "python/student_code_binder.py");
-        Process process = null;
+        // the start message tells a new or reused process about the new game
         try {
-            process = processBuilder.start();
+            this.engine = pool.acquire(startMessage(playerIndex, boardSize, nToConnect));
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
+    }
 
-        // create the object performing the communications between the programs
-        cm = new CommunicationMaster(process.getInputStream(),
-                process.getOutputStream(),
-                process.getErrorStream());
+    // the first message of every game, for engines behind any channel
+    public static String startMessage(int playerIndex, int[] boardSize, int nToConnect) {
+        return String.format("{" +
+                        "\"player_index\": %d, " +
+                        "\"board_size\": [%d, %d], " +
+                        "\"n_to_connect\": %d}",
+                playerIndex, boardSize[0], boardSize[1], nToConnect);
+    }
 
+    private static EnginePool startOwnPool() {
         try {
-            ArrayList<String> answer = cm.getAnswer(String.format("{" +
-                            "\"player_index\": %d, " +
-                            "\"board_size\": [%d, %d], " +
-                            "\"n_to_connect\": %d}",
-                    playerIndex, boardSize[0], boardSize[1], nToConnect));
+            return new EnginePool(DEFAULT_COMMAND, 1);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -41,11 +58,22 @@ public class PythonPlayer extends Player {
         int col = 0;
         // send a message to student code and wait for the answer
         try {
-            ArrayList<String> lines = cm.getAnswer(String.valueOf(board.getLastPlayerColumn()));
+            ArrayList<String> lines = engine.getAnswer(String.valueOf(board.getLastPlayerColumn()));
             col = Integer.parseInt(lines.get(0));
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
         return col;
     }
+
+    @Override
+    public void close() {
+        if (engine != null) {
+            pool.release(engine);
+            engine = null;
+        }
+        if (ownsPool) {
+            pool.close();
+        }
+    }
 }
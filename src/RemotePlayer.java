@@ -0,0 +1,42 @@
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+
+// A player at the other end of a socket. It speaks the protocol of PythonPlayer's engines: the start message
+// of the game, then the column of the other player's last step for every step, answered with a column.
+// When the game is over it gets {"winner": <player index or 0>}, which is not answered.
+public class RemotePlayer extends Player implements AutoCloseable {
+    private final Socket socket;
+    private final FramedChannel channel;
+
+    public RemotePlayer(int playerIndex, int[] boardSize, int nToConnect, Socket socket, CommunicationMaster.Framing framing)
+            throws IOException {
+        super(playerIndex, boardSize, nToConnect);
+        this.socket = socket;
+        this.channel = new FramedChannel(socket.getInputStream(), socket.getOutputStream(), framing);
+
+        channel.send(PythonPlayer.startMessage(playerIndex, boardSize, nToConnect));
+        channel.receive();
+    }
+
+    // reads time out after the socket's SO_TIMEOUT, which ends the game for an idle player
+    @Override
+    public int step(Board board) {
+        try {
+            channel.send(String.valueOf(board.getLastPlayerColumn()));
+            ArrayList<String> lines = channel.receive();
+            return Integer.parseInt(lines.get(0).trim());
+        } catch (IOException | RuntimeException e) {
+            throw new RuntimeException("Remote player " + socket.getRemoteSocketAddress() + " failed to step.", e);
+        }
+    }
+
+    public void gameOver(int winner) throws IOException {
+        channel.send(String.format("{\"winner\": %d}", winner));
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
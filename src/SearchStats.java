@@ -0,0 +1,71 @@
+// What one search for a step did. Counters a player does not have (e.g. transposition hits without a table) are 0.
+public class SearchStats {
+    private final long nodes;
+    private final long leafEvaluations;
+    private final long cutoffs;
+    private final long firstMoveCutoffs;
+    private final long transpositionHits;
+    private final int depth;
+    private final long elapsedNanos;
+
+    public SearchStats(long nodes, long leafEvaluations, long cutoffs, long firstMoveCutoffs, long transpositionHits,
+                       int depth, long elapsedNanos) {
+        this.nodes = nodes;
+        this.leafEvaluations = leafEvaluations;
+        this.cutoffs = cutoffs;
+        this.firstMoveCutoffs = firstMoveCutoffs;
+        this.transpositionHits = transpositionHits;
+        this.depth = depth;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getLeafEvaluations() {
+        return leafEvaluations;
+    }
+
+    public long getCutoffs() {
+        return cutoffs;
+    }
+
+    public long getFirstMoveCutoffs() {
+        return firstMoveCutoffs;
+    }
+
+    public long getTranspositionHits() {
+        return transpositionHits;
+    }
+
+    // depth of the deepest completed iteration, 0 if the step was not searched
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    // share of the cutoffs caused by the first step tried, near 1 when the move ordering is good
+    public double getFirstMoveCutoffRate() {
+        return cutoffs == 0 ? 0 : (double) firstMoveCutoffs / cutoffs;
+    }
+
+    // the branching factor of a uniform tree of the reached depth with as many nodes
+    public double getEffectiveBranchingFactor() {
+        return depth == 0 ? 0 : Math.pow(nodes, 1.0 / depth);
+    }
+
+    public double getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("depth %d, %d nodes, %d leaves, %d cutoffs (%.0f%% first), %d tt hits, ebf %.2f, %.1f ms (%.0f knps)",
+                depth, nodes, leafEvaluations, cutoffs, 100 * getFirstMoveCutoffRate(), transpositionHits,
+                getEffectiveBranchingFactor(), elapsedNanos / 1e6, getNodesPerSecond() / 1e3);
+    }
+}
@@ -0,0 +1,89 @@
+import java.util.concurrent.atomic.LongAdder;
+
+// Running sums of SearchStats, e.g. of one player in one game or of the whole process. Recording and reading
+// can happen from any thread at the same time, reads see the moves recorded so far.
+public class SearchStatsTotals {
+    // every search of every player in this process
+    public static final SearchStatsTotals PROCESS = new SearchStatsTotals();
+
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder nodes = new LongAdder();
+    private final LongAdder leafEvaluations = new LongAdder();
+    private final LongAdder cutoffs = new LongAdder();
+    private final LongAdder firstMoveCutoffs = new LongAdder();
+    private final LongAdder transpositionHits = new LongAdder();
+    private final LongAdder depths = new LongAdder();
+    private final LongAdder elapsedNanos = new LongAdder();
+
+    public void record(SearchStats stats) {
+        moves.increment();
+        nodes.add(stats.getNodes());
+        leafEvaluations.add(stats.getLeafEvaluations());
+        cutoffs.add(stats.getCutoffs());
+        firstMoveCutoffs.add(stats.getFirstMoveCutoffs());
+        transpositionHits.add(stats.getTranspositionHits());
+        depths.add(stats.getDepth());
+        elapsedNanos.add(stats.getElapsedNanos());
+    }
+
+    public void add(SearchStatsTotals other) {
+        moves.add(other.getMoves());
+        nodes.add(other.getNodes());
+        leafEvaluations.add(other.getLeafEvaluations());
+        cutoffs.add(other.getCutoffs());
+        firstMoveCutoffs.add(other.getFirstMoveCutoffs());
+        transpositionHits.add(other.getTranspositionHits());
+        depths.add(other.depths.sum());
+        elapsedNanos.add(other.getElapsedNanos());
+    }
+
+    public long getMoves() {
+        return moves.sum();
+    }
+
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    public long getLeafEvaluations() {
+        return leafEvaluations.sum();
+    }
+
+    public long getCutoffs() {
+        return cutoffs.sum();
+    }
+
+    public long getFirstMoveCutoffs() {
+        return firstMoveCutoffs.sum();
+    }
+
+    public long getTranspositionHits() {
+        return transpositionHits.sum();
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos.sum();
+    }
+
+    public double getAverageDepth() {
+        long nMoves = getMoves();
+        return nMoves == 0 ? 0 : (double) depths.sum() / nMoves;
+    }
+
+    public double getFirstMoveCutoffRate() {
+        long nCutoffs = getCutoffs();
+        return nCutoffs == 0 ? 0 : (double) getFirstMoveCutoffs() / nCutoffs;
+    }
+
+    public double getNodesPerSecond() {
+        long nanos = getElapsedNanos();
+        return nanos == 0 ? 0 : getNodes() * 1e9 / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d moves, %d nodes, %d leaves, %d cutoffs (%.0f%% first), %d tt hits, depth %.1f, %.1f ms (%.0f knps)",
+                getMoves(), getNodes(), getLeafEvaluations(), getCutoffs(), 100 * getFirstMoveCutoffRate(),
+                getTranspositionHits(), getAverageDepth(), getElapsedNanos() / 1e6, getNodesPerSecond() / 1e3);
+    }
+}
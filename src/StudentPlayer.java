@@ -1,184 +1,322 @@
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
 import java.util.logging.Logger;
 
-public class StudentPlayer extends Player{
-    private final int HUMAN_PLAYER = 1;
-    private final int AI_PLAYER = 2;
+public class StudentPlayer extends Player implements AutoCloseable {
+    // the engine maximizes for whichever side it plays
+    private final int HUMAN_PLAYER = 3 - playerIndex;
+    private final int AI_PLAYER = playerIndex;
+    private final int SEARCH_DEPTH = 7;
+    private static final int DEFAULT_TRANSPOSITION_TABLE_MEGABYTES = 64;
+    private static final int DEFAULT_ENDGAME_EMPTY_CELLS = 16;
+
+    private final TranspositionTable transpositionTable;
+    private final long moveTimeMillis;
+    private final NegamaxSearch mainSearcher;
+    private final NegamaxSearch[] helperSearchers;
+    private final ExecutorService helperPool;
+    private final OpeningBook openingBook;
+    private final EndgameSolver endgameSolver;
+    private final int endgameEmptyCells;
+    private volatile boolean stopHelpers;
+    // pondering searches the position after our step while the opponent thinks, filling the table for our next turn
+    private final NegamaxSearch ponderSearcher;
+    private ExecutorService ponderThread;
+    private Future<?> ponderTask;
+    private volatile boolean stopPondering;
+    private boolean pondering;
+    // true if the last ponder search started the table generation the next step searches in
+    private boolean ponderedGeneration;
+    private long deadlineNanos;
+    private volatile Deadline stepDeadline = Deadline.NONE;
+    // what getBestStepSoFar() answers until the main searcher has completed an iteration of this step
+    private volatile int fallbackStep = -1;
+    private volatile boolean mainSearcherPrepared;
+    private int lastScore;
+    private int lastDepth;
+    private long lastNodes;
+    private SearchStats lastSearchStats;
 
     public StudentPlayer(int playerIndex, int[] boardSize, int nToConnect) {
-        super(playerIndex, boardSize, nToConnect);
+        this(playerIndex, boardSize, nToConnect, DEFAULT_TRANSPOSITION_TABLE_MEGABYTES, 0, 1);
     }
 
-    @Override
-    public int step(Board board) {
-        return minimax(board, 7, true, Integer.MIN_VALUE, Integer.MAX_VALUE)[1];
+    public StudentPlayer(int playerIndex, int[] boardSize, int nToConnect, int transpositionTableMegabytes) {
+        this(playerIndex, boardSize, nToConnect, transpositionTableMegabytes, 0, 1);
     }
 
-    Comparator<Integer> closeComparator = new Comparator<Integer>() {
-        @Override
-        public int compare(Integer i1, Integer i2) {
-            int i1Dist = Math.abs(i1 - 3);
-            int i2Dist = Math.abs(i2 - 3);
-            return Integer.compare(i1Dist, i2Dist);
-        }
-    };
-
-    private int[] minimax(Board board, int depth, boolean isMaximizingPlayer, int alpha, int beta) {
-        if (depth == 0 || board.gameEnded()) return new int[] {evaluate(board), -1};
-
-        ArrayList<Integer> validSteps = board.getValidSteps();
-        validSteps.sort(closeComparator);
+    // with a positive moveTimeMillis the search deepens until the time is up instead of stopping at SEARCH_DEPTH
+    public StudentPlayer(int playerIndex, int[] boardSize, int nToConnect, int transpositionTableMegabytes, long moveTimeMillis) {
+        this(playerIndex, boardSize, nToConnect, transpositionTableMegabytes, moveTimeMillis, 1);
+    }
 
-        if (isMaximizingPlayer) {
-            int maxScore = Integer.MIN_VALUE;
-            int bestMaxMove = board.getValidSteps().get(0);
+    // nThreads > 1 runs a Lazy SMP search: helper threads search the same position and share the transposition table
+    public StudentPlayer(int playerIndex, int[] boardSize, int nToConnect, int transpositionTableMegabytes, long moveTimeMillis, int nThreads) {
+        this(playerIndex, boardSize, nToConnect, transpositionTableMegabytes, moveTimeMillis, nThreads, null);
+    }
 
-            for(int col : validSteps) {
-                Board boardCopy = new Board(board);
-                boardCopy.step(AI_PLAYER, col);
-                int score = minimax(boardCopy, depth - 1, false, alpha, beta)[0];
+    // positions found in the opening book are played without searching
+    public StudentPlayer(int playerIndex, int[] boardSize, int nToConnect, int transpositionTableMegabytes, long moveTimeMillis, int nThreads,
+                         OpeningBook openingBook) {
+        this(playerIndex, boardSize, nToConnect, transpositionTableMegabytes, moveTimeMillis, nThreads, openingBook,
+                DEFAULT_ENDGAME_EMPTY_CELLS);
+    }
 
-                if (score >= maxScore) {
-                    maxScore = score;
-                    bestMaxMove = col;
-                }
-                alpha = Math.max(alpha, maxScore);
-                if (alpha > beta) break;
-            }
-            return new int[] {maxScore, bestMaxMove};
+    // positions with at most endgameEmptyCells empty cells are solved exactly instead of searched, 0 turns the solver off
+    public StudentPlayer(int playerIndex, int[] boardSize, int nToConnect, int transpositionTableMegabytes, long moveTimeMillis, int nThreads,
+                         OpeningBook openingBook, int endgameEmptyCells) {
+        super(playerIndex, boardSize, nToConnect);
+        if (openingBook != null && !openingBook.matches(boardSize, nToConnect)) {
+            throw new IllegalArgumentException("The opening book was built for another board.");
+        }
+        this.openingBook = openingBook;
+        this.endgameEmptyCells = endgameEmptyCells;
+        this.endgameSolver = endgameEmptyCells > 0 ? new EndgameSolver(boardSize, this::stepIsOver) : null;
+        this.transpositionTable = new TranspositionTable(transpositionTableMegabytes);
+        this.moveTimeMillis = moveTimeMillis;
+        this.mainSearcher = newSearcher(this::stepIsOver);
+        this.ponderSearcher = newSearcher(() -> stopPondering);
+        this.helperSearchers = new NegamaxSearch[Math.max(0, nThreads - 1)];
+        for (int i = 0; i < helperSearchers.length; i++) {
+            helperSearchers[i] = newSearcher(this::stepIsOver);
+        }
+        if (helperSearchers.length > 0) {
+            this.helperPool = Executors.newFixedThreadPool(helperSearchers.length, runnable -> {
+                Thread thread = new Thread(runnable, "StudentPlayer-helper");
+                thread.setDaemon(true);
+                return thread;
+            });
         } else {
-            int minScore = Integer.MAX_VALUE;
-            int bestMinMove = board.getValidSteps().get(0);
-            for(int col : validSteps) {
-                Board boardCopy = new Board(board);
-                boardCopy.step(HUMAN_PLAYER, col);
-                int score = minimax(boardCopy, depth - 1, true, alpha, beta)[0];
-
-                if(score <= minScore) {
-                    minScore = score;
-                    bestMinMove = col;
-                }
-                beta = Math.min(beta, minScore);
-                if (alpha > beta) break;
-            }
-            return new int[] {minScore, bestMinMove};
+            this.helperPool = null;
         }
     }
 
-    private int evaluate(Board board) {
-        int score = 0;
-        int windowSize = 4;
-        int pieces = 0;
-
-        int POINT_FOR_THREAT_OF_THREE = 100;
-        int POINT_FOR_THREAT_OF_TWO = 20;
-        int POINT_FOR_THREAT_OF_ONE = 3;
+    // all searchers share the transposition table and evaluate from this player's point of view
+    private NegamaxSearch newSearcher(BooleanSupplier stop) {
+        return new NegamaxSearch(boardSize, nToConnect, AI_PLAYER, transpositionTable, stop);
+    }
 
-        int[][] state = board.getState();
+    private boolean stepIsOver() {
+        return stopHelpers || System.nanoTime() >= deadlineNanos || stepDeadline.isCancelled();
+    }
 
-        for (int[] row : state) {
-            pieces += Arrays.stream(row).filter(num -> num != 0).count();
-        }
+    @Override
+    public int step(Board board) {
+        return step(board, Deadline.NONE);
+    }
 
-        if(board.gameEnded()) {
-            if (board.getWinner() == HUMAN_PLAYER) return -1_000_000 + pieces;
-            else if (board.getWinner() == AI_PLAYER) return 1_000_000 - pieces;
-            return 0;
-        }
+    // the search shares the time left until the deadline evenly among our remaining steps and stops at once
+    // when the deadline is cancelled, answering with the best step of the deepest completed iteration
+    @Override
+    public CompletableFuture<Integer> stepAsync(Board board, Deadline deadline) {
+        return CompletableFuture.supplyAsync(() -> step(board, deadline), STEP_THREADS);
+    }
 
-        for(int[] row : state) {
-            for(int i = 0; i < row.length - windowSize; i++) {
-                int[] window = Arrays.copyOfRange(row, i, i + windowSize);
+    @Override
+    public int getBestStepSoFar() {
+        int step = mainSearcherPrepared ? mainSearcher.getBestCompletedMove() : -1;
+        return step != -1 ? step : fallbackStep;
+    }
 
-                score += windowScore(window, POINT_FOR_THREAT_OF_THREE, POINT_FOR_THREAT_OF_TWO, POINT_FOR_THREAT_OF_ONE);
+    private int step(Board board, Deadline deadline) {
+        stopPondering();
+        boolean keepGeneration = ponderedGeneration;
+        ponderedGeneration = false;
+        stepDeadline = deadline;
+        mainSearcherPrepared = false;
+        fallbackStep = centerMostStep(board);
+        if (openingBook != null) {
+            int bookMove = openingBook.getMove(board);
+            if (board.stepIsValid(bookMove)) {
+                lastScore = openingBook.getScore(board);
+                lastDepth = 0;
+                lastNodes = 0;
+                recordSearchStats(new SearchStats(0, 0, 0, 0, 0, 0, 0));
+                return bookMove;
             }
         }
 
-        // vertical
-        for(int coll_ix = 0; coll_ix < 7; coll_ix++) {
-            // get column array
-            int[] column = new int[6];
-            for(int row_ix = 0; row_ix < 6; row_ix++) {
-                column[row_ix] = state[row_ix][coll_ix];
+        int nCells = boardSize[0] * boardSize[1];
+        int emptyCells = nCells - board.getNSteps();
+        long startNanos = System.nanoTime();
+        long stepDeadlineNanos = moveTimeMillis > 0 ? startNanos + moveTimeMillis * 1_000_000 : Long.MAX_VALUE;
+        if (deadline.isLimited()) {
+            long share = deadline.remainingNanos() / Math.max(1, (emptyCells + 1) / 2);
+            stepDeadlineNanos = Math.min(stepDeadlineNanos, startNanos + share);
+        }
+        stopHelpers = false;
+
+        long solverNodes = 0;
+        if (emptyCells <= endgameEmptyCells) {
+            // the solver gets half of the time, if it cannot finish the search plays with the rest
+            deadlineNanos = startNanos + (stepDeadlineNanos - startNanos) / 2;
+            Board solverBoard = new Board(board);
+            int score = endgameSolver.solve(solverBoard, AI_PLAYER);
+            solverNodes = endgameSolver.getNodes();
+            if (!endgameSolver.isAborted()) {
+                // proven results are reported on the scale of finished games in evaluate()
+                if (score > 0) lastScore = NegamaxSearch.WIN_SCORE - (nCells + 2 - 2 * score);
+                else if (score < 0) lastScore = -NegamaxSearch.WIN_SCORE + (nCells + 2 + 2 * score);
+                else lastScore = 0;
+                lastDepth = emptyCells;
+                lastNodes = solverNodes;
+                recordSearchStats(new SearchStats(lastNodes, 0, 0, 0, 0, emptyCells, System.nanoTime() - startNanos));
+                return endgameSolver.getBestMove();
             }
+        }
 
-            // assign points
-            for(int i = 0; i < column.length - windowSize; i++) {
-                int[] window = Arrays.copyOfRange(column, i, i + windowSize);
+        int maxDepth = moveTimeMillis > 0 ? emptyCells : Math.min(SEARCH_DEPTH, emptyCells);
+        deadlineNanos = stepDeadlineNanos;
+        mainSearcher.prepare(board, AI_PLAYER);
+        mainSearcherPrepared = true;
+        // what the ponder search stored is for this position, it keeps its slots as if this search had found it
+        if (!keepGeneration) {
+            transpositionTable.nextGeneration();
+        }
 
-                score += windowScore(window, POINT_FOR_THREAT_OF_THREE, POINT_FOR_THREAT_OF_TWO, POINT_FOR_THREAT_OF_ONE);
-            }
+        List<Future<?>> helperTasks = new ArrayList<>();
+        for (int i = 0; i < helperSearchers.length; i++) {
+            NegamaxSearch helper = helperSearchers[i];
+            // half of the helpers run one ply ahead, so they fill the table for the main thread's next iteration
+            int startDepth = 1 + i % 2;
+            helper.prepare(board, AI_PLAYER);
+            helperTasks.add(helperPool.submit(() -> helper.iterate(startDepth, maxDepth)));
         }
 
-        // diagonal positive slope
-        for(int row_ix = 0; row_ix < 3; row_ix++) {
-            for(int coll_ix = 0; coll_ix < 4; coll_ix++) {
-                int[] window = new int[4];
-                for(int i = 0; i < 4; i++) {
-                    window[i] = state[row_ix + i][coll_ix + i];
-                }
+        int bestMove = mainSearcher.iterate(1, maxDepth);
 
-                score += windowScore(window, POINT_FOR_THREAT_OF_THREE, POINT_FOR_THREAT_OF_TWO, POINT_FOR_THREAT_OF_ONE);
+        stopHelpers = true;
+        for (Future<?> helperTask : helperTasks) {
+            try {
+                helperTask.get();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new RuntimeException(e);
             }
         }
 
-        // diagonal negative slope
-        for(int row_ix = 0; row_ix < 3; row_ix++) {
-            for(int coll_ix = 3; coll_ix < 7; coll_ix++) {
-                int[] window = new int[4];
-                for(int i = 0; i < 4; i++) {
-                    window[i] = state[row_ix + i][coll_ix - i];
-                }
-                score += windowScore(window, POINT_FOR_THREAT_OF_THREE, POINT_FOR_THREAT_OF_TWO, POINT_FOR_THREAT_OF_ONE);
-            }
+        // the work of all threads and of an aborted solver, the depth is the one the move comes from
+        long nodes = solverNodes + mainSearcher.getNodes();
+        long leafEvaluations = mainSearcher.getLeafEvaluations();
+        long cutoffs = mainSearcher.getCutoffs();
+        long firstMoveCutoffs = mainSearcher.getFirstMoveCutoffs();
+        long transpositionHits = mainSearcher.getTranspositionHits();
+        long researches = mainSearcher.getResearches();
+        for (NegamaxSearch helper : helperSearchers) {
+            nodes += helper.getNodes();
+            leafEvaluations += helper.getLeafEvaluations();
+            cutoffs += helper.getCutoffs();
+            firstMoveCutoffs += helper.getFirstMoveCutoffs();
+            transpositionHits += helper.getTranspositionHits();
+            researches += helper.getResearches();
         }
-        score += centerBonusVariant(board, 0, AI_PLAYER, 5);
-        score += centerBonusVariant(board, 0, HUMAN_PLAYER, -5);
+        SearchStats stats = new SearchStats(nodes, leafEvaluations, cutoffs, firstMoveCutoffs, transpositionHits,
+                mainSearcher.getCompletedDepth(), System.nanoTime() - startNanos);
+        Logger.getLogger("StudentPlayer").fine(stats + ", " + researches + " re-searches with "
+                + (helperSearchers.length + 1) + " threads");
+        lastScore = mainSearcher.getCompletedScore();
+        lastDepth = mainSearcher.getCompletedDepth();
+        lastNodes = nodes;
+        recordSearchStats(stats);
+        startPondering(board, bestMove);
+        return bestMove;
+    }
 
-        score += centerBonusVariant(board, 1, AI_PLAYER, 4);
-        score += centerBonusVariant(board, 1, HUMAN_PLAYER, -4);
+    // the valid column closest to the center, a reasonable step before any search has finished
+    private int centerMostStep(Board board) {
+        int bestStep = -1;
+        for (int col = 0; col < boardSize[1]; col++) {
+            if (board.stepIsValid(col) && (bestStep == -1
+                    || Math.abs(2 * col - (boardSize[1] - 1)) < Math.abs(2 * bestStep - (boardSize[1] - 1)))) {
+                bestStep = col;
+            }
+        }
+        return bestStep;
+    }
 
-        score += centerBonusVariant(board, 2, AI_PLAYER, 2);
-        score += centerBonusVariant(board, 2, HUMAN_PLAYER, -2);
+    // with pondering on, the player keeps searching in the background after every step until the next one
+    public void setPondering(boolean pondering) {
+        this.pondering = pondering;
+        if (!pondering) {
+            stopPondering();
+        }
+    }
 
-        return score;
+    // searches all replies of the opponent to our step; the transposition table keeps what was found
+    private void startPondering(Board board, int bestMove) {
+        if (!pondering) return;
+        Board position = new Board(board);
+        position.step(AI_PLAYER, bestMove);
+        int emptyCells = boardSize[0] * boardSize[1] - position.getNSteps();
+        // the solver does not use the table, so there is nothing to prepare for it
+        if (position.gameEnded() || emptyCells - 1 <= endgameEmptyCells) return;
+
+        if (ponderThread == null) {
+            ponderThread = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "StudentPlayer-ponder");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        stopPondering = false;
+        transpositionTable.nextGeneration();
+        ponderedGeneration = true;
+        ponderSearcher.prepare(position, HUMAN_PLAYER);
+        ponderTask = ponderThread.submit(() -> {
+            ponderSearcher.iterate(1, emptyCells);
+            Logger.getLogger("StudentPlayer").fine(String.format("pondered to depth %d, %d nodes",
+                    ponderSearcher.getCompletedDepth(), ponderSearcher.getNodes()));
+        });
     }
 
-    private int centerBonusVariant(Board board, int centerOffset, int player, int bonusPerPiece) {
-        if(centerOffset == 0) {
-            int[] column = new int[6];
-            for(int row_ix = 0; row_ix < 6; row_ix++) {
-                column[row_ix] = board.getState()[row_ix][3];
-            }
-            return (int)Arrays.stream(column).filter(num -> num == player).count() * bonusPerPiece;
-        } else {
-            int sum = 0;
-            int[] centerLeft = new int[6];
-            int[] centerRight = new int[6];
-            for(int row_ix = 0; row_ix < 6; row_ix++) {
-                centerLeft[row_ix] = board.getState()[row_ix][3 - centerOffset];
-            }
-            for(int row_ix = 0; row_ix < 6; row_ix++) {
-                centerRight[row_ix] = board.getState()[row_ix][3 + centerOffset];
-            }
-            sum += (int)Arrays.stream(centerLeft).filter(num -> num == player).count() * bonusPerPiece;
-            sum += (int)Arrays.stream(centerRight).filter(num -> num == player).count() * bonusPerPiece;
+    private void stopPondering() {
+        if (ponderTask == null) return;
+        stopPondering = true;
+        try {
+            ponderTask.get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+        ponderTask = null;
+    }
 
-            return sum;
+    @Override
+    public void close() {
+        stopPondering();
+        if (ponderThread != null) {
+            ponderThread.shutdown();
+        }
+        if (helperPool != null) {
+            helperPool.shutdownNow();
         }
     }
 
-    private int windowScore(int[] window, int pointForThreatOfThree, int pointForThreatOfTwo, int pointForThreatOfOne) {
-        int score = 0;
+    private void recordSearchStats(SearchStats stats) {
+        lastSearchStats = stats;
+        SearchStatsTotals.PROCESS.record(stats);
+    }
+
+    @Override
+    public SearchStats getLastSearchStats() {
+        return lastSearchStats;
+    }
 
-        if(Arrays.stream(window).filter(num -> num == AI_PLAYER).count() == 3 && Arrays.stream(window).filter(num -> num == 0).count() == 1) score += pointForThreatOfThree;
-        else if (Arrays.stream(window).filter(num -> num == AI_PLAYER).count() == 2 && Arrays.stream(window).filter(num -> num == 0).count() == 2) score += pointForThreatOfTwo;
-        else if (Arrays.stream(window).filter(num -> num == AI_PLAYER).count() == 1 && Arrays.stream(window).filter(num -> num == 0).count() == 3) score += pointForThreatOfOne;
+    // score of the last move from this player's point of view
+    public int getLastScore() {
+        return lastScore;
+    }
 
-        if(Arrays.stream(window).filter(num -> num == HUMAN_PLAYER).count() == 3 && Arrays.stream(window).filter(num -> num == 0).count() == 1) score -= pointForThreatOfThree;
-        else if (Arrays.stream(window).filter(num -> num == HUMAN_PLAYER).count() == 2 && Arrays.stream(window).filter(num -> num == 0).count() == 2) score -= pointForThreatOfTwo;
-        else if (Arrays.stream(window).filter(num -> num == HUMAN_PLAYER).count() == 1 && Arrays.stream(window).filter(num -> num == 0).count() == 3) score -= pointForThreatOfOne;
+    // depth of the last completed search iteration, 0 for book moves
+    public int getLastDepth() {
+        return lastDepth;
+    }
 
-        return score;
+    // nodes searched by all threads for the last move
+    public long getLastNodes() {
+        return lastNodes;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,48 @@
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Threads for tasks which mostly wait for the network. On a JVM with virtual threads every task gets one,
+// otherwise a daemon platform thread with a small stack, so thousands of them still fit.
+public final class Threads {
+    private static final long PLATFORM_THREAD_STACK_BYTES = 256 * 1024;
+    // Executors.newVirtualThreadPerTaskExecutor(), looked up at run time so the code still builds for Java 17
+    private static final MethodHandle NEW_VIRTUAL_THREAD_EXECUTOR = findVirtualThreadExecutor();
+
+    private Threads() {
+    }
+
+    private static MethodHandle findVirtualThreadExecutor() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    public static boolean hasVirtualThreads() {
+        return NEW_VIRTUAL_THREAD_EXECUTOR != null;
+    }
+
+    // an executor which starts a new thread for every task
+    public static ExecutorService newThreadPerTaskExecutor(String name) {
+        if (NEW_VIRTUAL_THREAD_EXECUTOR != null) {
+            try {
+                return (ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invokeExact();
+            } catch (Throwable e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        AtomicInteger nThreads = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(null, runnable, name + "-" + nThreads.incrementAndGet(), PLATFORM_THREAD_STACK_BYTES);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
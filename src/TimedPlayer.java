@@ -0,0 +1,52 @@
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+// Wraps a player and records how long each of its steps took.
+public class TimedPlayer extends Player {
+    private final Player player;
+    private long[] stepNanos = new long[16];
+    private int nSteps;
+
+    public TimedPlayer(Player player) {
+        super(player.playerIndex, player.boardSize, player.nToConnect);
+        this.player = player;
+    }
+
+    @Override
+    public int step(Board board) {
+        long start = System.nanoTime();
+        int column = player.step(board);
+        record(System.nanoTime() - start);
+        return column;
+    }
+
+    @Override
+    public CompletableFuture<Integer> stepAsync(Board board, Deadline deadline) {
+        long start = System.nanoTime();
+        return player.stepAsync(board, deadline).thenApply(column -> {
+            record(System.nanoTime() - start);
+            return column;
+        });
+    }
+
+    private synchronized void record(long elapsed) {
+        if (nSteps == stepNanos.length) {
+            stepNanos = Arrays.copyOf(stepNanos, 2 * nSteps);
+        }
+        stepNanos[nSteps++] = elapsed;
+    }
+
+    @Override
+    public int getBestStepSoFar() {
+        return player.getBestStepSoFar();
+    }
+
+    @Override
+    public SearchStats getLastSearchStats() {
+        return player.getLastSearchStats();
+    }
+
+    public synchronized long[] getStepNanos() {
+        return Arrays.copyOf(stepNanos, nSteps);
+    }
+}
@@ -0,0 +1,320 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Headless match between two engines: games run in parallel without a view, every opening is played twice
+// with the colors swapped, and the result is reported as win/draw/loss, Elo difference and step latencies.
+//
+// usage: Tournament <player A> <player B> [games] [threads] [opening plies or openings file] [seed]
+//                   [clock base millis] [clock increment millis]
+//   players: StudentPlayer, StudentPlayer2, MctsPlayer, PythonPlayer
+//   PythonPlayer engines run from a pool of warm processes started with the command in the connect4.engineCommand
+//   system property (PythonPlayer.DEFAULT_COMMAND if unset); they only learn the last step, so matches with one
+//   are played without openings: 0 opening plies by default, anything else is rejected
+//   an openings file holds one opening per line as the columns played, e.g. 3324
+//   with a clock, a player out of time plays its best step so far or forfeits if it has none
+//   with the connect4.recordFile system property set, every game is appended to that file as a GameRecord
+public class Tournament {
+    // smaller than the default, a player is created for every game and many games run at once
+    private static final int TRANSPOSITION_TABLE_MEGABYTES = 16;
+    private static final int PROGRESS_INTERVAL = 100;
+    // shared by all games of the process, created when the first PythonPlayer is needed
+    private static EnginePool enginePool;
+
+    public interface PlayerFactory {
+        Player create(int playerIndex, int[] boardSize, int nToConnect);
+    }
+
+    private final int[] boardSize;
+    private final int nToConnect;
+    private final String[] names;
+    private final PlayerFactory[] factories;
+    // no clock if 0
+    private long clockBaseMillis;
+    private long clockIncrementMillis;
+    private GameRecordWriter recordWriter;
+
+    // counts from player A's point of view
+    private int wins;
+    private int draws;
+    private int losses;
+    private final long[][] stepNanos = new long[2][1024];
+    private final int[] nStepNanos = new int[2];
+    private final SearchStatsTotals[] searchStats = new SearchStatsTotals[] {new SearchStatsTotals(), new SearchStatsTotals()};
+
+    public Tournament(int[] boardSize, int nToConnect, String nameA, PlayerFactory playerA, String nameB, PlayerFactory playerB) {
+        this.boardSize = boardSize;
+        this.nToConnect = nToConnect;
+        this.names = new String[] {nameA, nameB};
+        this.factories = new PlayerFactory[] {playerA, playerB};
+    }
+
+    // every game gets a chess clock
+    public void setClock(long baseMillis, long incrementMillis) {
+        this.clockBaseMillis = baseMillis;
+        this.clockIncrementMillis = incrementMillis;
+    }
+
+    // every finished game is written to recordWriter, named after the engines
+    public void setRecordWriter(GameRecordWriter recordWriter) {
+        this.recordWriter = recordWriter;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: Tournament <player A> <player B> [games] [threads] [opening plies or openings file] [seed]"
+                    + " [clock base millis] [clock increment millis]");
+            System.exit(1);
+        }
+        int[] boardSize = new int[] {6, 7};
+        int nToConnect = 4;
+        int nGames = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int nThreads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        boolean hasPythonPlayer = args[0].equals("PythonPlayer") || args[1].equals("PythonPlayer");
+        String opening = args.length > 4 ? args[4] : hasPythonPlayer ? "0" : "4";
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : 1;
+        long clockBaseMillis = args.length > 6 ? Long.parseLong(args[6]) : 0;
+        long clockIncrementMillis = args.length > 7 ? Long.parseLong(args[7]) : 0;
+
+        List<int[]> openings;
+        int nPairs = (nGames + 1) / 2;
+        if (opening.matches("\\d+")) {
+            openings = randomOpenings(boardSize, nToConnect, Integer.parseInt(opening), nPairs, new Random(seed));
+        } else {
+            openings = readOpenings(Path.of(opening), nPairs);
+        }
+        if (hasPythonPlayer && openings.stream().anyMatch(steps -> steps.length > 0)) {
+            throw new IllegalArgumentException("PythonPlayer engines only learn the last step, they cannot play from an opening.");
+        }
+
+        Tournament tournament = new Tournament(boardSize, nToConnect, args[0], factory(args[0], nThreads),
+                args[1], factory(args[1], nThreads));
+        if (clockBaseMillis > 0) {
+            tournament.setClock(clockBaseMillis, clockIncrementMillis);
+        }
+        String recordFile = System.getProperty("connect4.recordFile");
+        GameRecordWriter recordWriter = recordFile == null ? null : new GameRecordWriter(Path.of(recordFile));
+        tournament.setRecordWriter(recordWriter);
+        long start = System.currentTimeMillis();
+        tournament.run(openings, nThreads);
+        System.out.printf("%d games in %.1f s%n", 2 * openings.size(), (System.currentTimeMillis() - start) / 1000.0);
+        tournament.printResults();
+        if (recordWriter != null) {
+            recordWriter.close();
+        }
+        if (enginePool != null) {
+            enginePool.close();
+        }
+    }
+
+    private static PlayerFactory factory(String name, int nThreads) {
+        switch (name) {
+            case "StudentPlayer":
+                return (playerIndex, boardSize, nToConnect) ->
+                        new StudentPlayer(playerIndex, boardSize, nToConnect, TRANSPOSITION_TABLE_MEGABYTES);
+            case "StudentPlayer2":
+                return StudentPlayer2::new;
+            case "MctsPlayer":
+                return MctsPlayer::new;
+            case "PythonPlayer":
+                EnginePool pool = enginePool(2 * nThreads);
+                return (playerIndex, boardSize, nToConnect) -> new PythonPlayer(playerIndex, boardSize, nToConnect, pool);
+            default:
+                throw new IllegalArgumentException("Unknown player: " + name);
+        }
+    }
+
+    private static synchronized EnginePool enginePool(int size) {
+        if (enginePool == null) {
+            String command = System.getProperty("connect4.engineCommand");
+            try {
+                enginePool = new EnginePool(command == null ? PythonPlayer.DEFAULT_COMMAND : List.of(command.split(" ")), size);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return enginePool;
+    }
+
+    // random valid openings which do not end the game
+    public static List<int[]> randomOpenings(int[] boardSize, int nToConnect, int plies, int count, Random random) {
+        List<int[]> openings = new ArrayList<>();
+        int[] steps = new int[boardSize[1]];
+        while (openings.size() < count) {
+            Board board = new Board(boardSize, nToConnect);
+            int[] opening = new int[plies];
+            boolean finished = false;
+            for (int i = 0; i < plies && !finished; i++) {
+                int nSteps = board.getValidSteps(steps);
+                opening[i] = steps[random.nextInt(nSteps)];
+                board.step(i % 2 == 0 ? 1 : 2, opening[i]);
+                finished = board.gameEnded();
+            }
+            if (!finished) {
+                openings.add(opening);
+            }
+        }
+        return openings;
+    }
+
+    // the openings of the file, repeated if it has fewer than count
+    public static List<int[]> readOpenings(Path path, int count) throws IOException {
+        List<int[]> suite = new ArrayList<>();
+        for (String line : Files.readAllLines(path)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            suite.add(line.chars().map(c -> c - '0').toArray());
+        }
+        if (suite.isEmpty()) {
+            throw new IOException("No openings in " + path);
+        }
+
+        List<int[]> openings = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            openings.add(suite.get(i % suite.size()));
+        }
+        return openings;
+    }
+
+    // plays every opening twice, once with each engine moving first
+    public void run(List<int[]> openings, int nThreads) {
+        ExecutorService pool = Executors.newFixedThreadPool(nThreads);
+        ExecutorCompletionService<GameResult> games = new ExecutorCompletionService<>(pool);
+        try {
+            for (int[] opening : openings) {
+                games.submit(() -> playGame(0, opening));
+                games.submit(() -> playGame(1, opening));
+            }
+
+            int nGames = 2 * openings.size();
+            for (int i = 1; i <= nGames; i++) {
+                add(games.take().get());
+                if (i % PROGRESS_INTERVAL == 0 && i < nGames) {
+                    System.out.printf("%d/%d games  +%d =%d -%d%n", i, nGames, wins, draws, losses);
+                }
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private GameResult playGame(int firstEngine, int[] opening) throws Exception {
+        Player player1 = factories[firstEngine].create(1, boardSize, nToConnect);
+        Player player2 = factories[1 - firstEngine].create(2, boardSize, nToConnect);
+        TimedPlayer first = new TimedPlayer(player1);
+        TimedPlayer second = new TimedPlayer(player2);
+        GameLogic game = new GameLogic(first, second, new NullView(boardSize), boardSize, nToConnect, opening);
+        if (clockBaseMillis > 0) {
+            game.setClock(clockBaseMillis, clockIncrementMillis, GameLogic.OverrunPolicy.BEST_SO_FAR);
+        }
+        int winner;
+        try {
+            winner = game.play();
+        } finally {
+            // pooled engines go back for the next game
+            if (player1 instanceof AutoCloseable) ((AutoCloseable) player1).close();
+            if (player2 instanceof AutoCloseable) ((AutoCloseable) player2).close();
+        }
+        if (recordWriter != null) {
+            recordWriter.write(game.getRecord(names[firstEngine], names[1 - firstEngine]));
+        }
+        searchStats[firstEngine].add(game.getSearchStats(1));
+        searchStats[1 - firstEngine].add(game.getSearchStats(2));
+
+        GameResult result = new GameResult();
+        result.winnerEngine = winner == 0 ? -1 : (winner == 1 ? firstEngine : 1 - firstEngine);
+        result.stepNanos[firstEngine] = first.getStepNanos();
+        result.stepNanos[1 - firstEngine] = second.getStepNanos();
+        return result;
+    }
+
+    private void add(GameResult result) {
+        if (result.winnerEngine == 0) wins++;
+        else if (result.winnerEngine == 1) losses++;
+        else draws++;
+
+        for (int engine = 0; engine < 2; engine++) {
+            long[] nanos = result.stepNanos[engine];
+            if (nStepNanos[engine] + nanos.length > stepNanos[engine].length) {
+                stepNanos[engine] = Arrays.copyOf(stepNanos[engine], 2 * (nStepNanos[engine] + nanos.length));
+            }
+            System.arraycopy(nanos, 0, stepNanos[engine], nStepNanos[engine], nanos.length);
+            nStepNanos[engine] += nanos.length;
+        }
+    }
+
+    public void printResults() {
+        int nGames = wins + draws + losses;
+        double score = (wins + 0.5 * draws) / nGames;
+        // standard error of the mean game score, the Elo bounds are those of the 95% interval of the score
+        double variance = (wins * Math.pow(1 - score, 2) + draws * Math.pow(0.5 - score, 2) + losses * Math.pow(score, 2)) / nGames;
+        double margin = 1.96 * Math.sqrt(variance / nGames);
+        // a score of 0 or 1 is infinitely many Elo apart, scores are kept half a game away from those
+        double minScore = 0.5 / nGames;
+        double maxScore = 1 - minScore;
+        double elo = eloDifference(Math.min(Math.max(score, minScore), maxScore));
+        double eloMargin = (eloDifference(Math.min(score + margin, maxScore)) - eloDifference(Math.max(score - margin, minScore))) / 2;
+        String eloText;
+        if (wins == nGames || losses == nGames) {
+            // a sweep only bounds the difference
+            eloText = String.format("%s %+.1f", wins > 0 ? ">" : "<", elo);
+        } else {
+            eloText = String.format("%+.1f +/- %.1f", elo, eloMargin);
+        }
+
+        System.out.printf("%s vs %s: +%d =%d -%d, score %.1f%%, Elo %s%n",
+                names[0], names[1], wins, draws, losses, 100 * score, eloText);
+        System.out.printf("%-16s %10s %10s %10s %10s %10s%n", "step time (ms)", "mean", "p50", "p90", "p99", "max");
+        for (int engine = 0; engine < 2; engine++) {
+            long[] nanos = Arrays.copyOf(stepNanos[engine], nStepNanos[engine]);
+            Arrays.sort(nanos);
+            if (nanos.length == 0) continue;
+            System.out.printf("%-16s %10.2f %10.2f %10.2f %10.2f %10.2f%n", names[engine],
+                    Arrays.stream(nanos).average().orElse(0) / 1e6,
+                    percentile(nanos, 0.5) / 1e6, percentile(nanos, 0.9) / 1e6, percentile(nanos, 0.99) / 1e6,
+                    nanos[nanos.length - 1] / 1e6);
+        }
+        for (int engine = 0; engine < 2; engine++) {
+            System.out.printf("%-16s %s%n", names[engine], searchStats[engine]);
+        }
+    }
+
+    // Elo difference that makes the expected score of the stronger side equal to score
+    public static double eloDifference(double score) {
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    // nearest-rank percentile of sorted values
+    private static long percentile(long[] sorted, double fraction) {
+        int rank = (int) Math.ceil(fraction * sorted.length);
+        return sorted[Math.max(rank - 1, 0)];
+    }
+
+    public int getWins() {
+        return wins;
+    }
+
+    public int getDraws() {
+        return draws;
+    }
+
+    public int getLosses() {
+        return losses;
+    }
+
+    private static class GameResult {
+        // 0 if player A won, 1 if player B did, -1 for a draw
+        int winnerEngine;
+        final long[][] stepNanos = new long[2][];
+    }
+}
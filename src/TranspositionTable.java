@@ -0,0 +1,104 @@
+import java.util.Arrays;
+
+public class TranspositionTable {
+    public static final int EXACT = 0;
+    public static final int LOWER_BOUND = 1;
+    public static final int UPPER_BOUND = 2;
+
+    // one key and one data long per entry
+    private static final int BYTES_PER_ENTRY = 16;
+    private static final int SLOTS_PER_BUCKET = 2;
+    private static final int MAX_BUCKETS = 1 << 29;
+
+    // data layout: | valid (1) | unused | generation (8) | move + 1 (8) | bound (2) | depth (8) | score (32) |
+    private static final long VALID_BIT = 1L << 63;
+    private static final int DEPTH_SHIFT = 32;
+    private static final int BOUND_SHIFT = 40;
+    private static final int MOVE_SHIFT = 42;
+    private static final int GENERATION_SHIFT = 50;
+
+    // keys[i] holds key ^ data[i], so an entry torn by two threads writing at once does not match any key
+    // and the table can be shared by search threads without locking
+    private final long[] keys;
+    private final long[] data;
+    private final int bucketMask;
+    // the search the stored entries belong to, only changed between searches
+    private int generation;
+
+    public TranspositionTable(int megabytes) {
+        long entries = Math.max(SLOTS_PER_BUCKET, (long) megabytes * 1024 * 1024 / BYTES_PER_ENTRY);
+        // bigger tables would not fit into one array
+        int buckets = Integer.highestOneBit((int) Math.min(entries / SLOTS_PER_BUCKET, MAX_BUCKETS));
+        this.keys = new long[buckets * SLOTS_PER_BUCKET];
+        this.data = new long[buckets * SLOTS_PER_BUCKET];
+        this.bucketMask = buckets - 1;
+    }
+
+    // returns the stored entry for the position or 0 if there is none, decode it with the static getters
+    public long probe(long key) {
+        int slot = bucketOf(key);
+        for (int i = slot; i < slot + SLOTS_PER_BUCKET; i++) {
+            long entry = data[i];
+            if (entry != 0 && (keys[i] ^ entry) == key) return entry;
+        }
+        return 0;
+    }
+
+    // starts a search from a new root: the entries of earlier searches stay usable, but no longer hold their
+    // slots against newer ones, so deep results of positions which cannot be reached anymore are replaced
+    public void nextGeneration() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    // the first slot of a bucket keeps the deepest result of the current generation, the second one always takes
+    // the newest
+    public void store(long key, int depth, int bound, int score, int move) {
+        int slot = bucketOf(key);
+        long entry = VALID_BIT
+                | ((long) generation) << GENERATION_SHIFT
+                | ((long) (move + 1) & 0xFF) << MOVE_SHIFT
+                | ((long) bound & 0x3) << BOUND_SHIFT
+                | ((long) depth & 0xFF) << DEPTH_SHIFT
+                | (score & 0xFFFFFFFFL);
+
+        long stored = data[slot];
+        if (stored == 0 || (keys[slot] ^ stored) == key || getGeneration(stored) != generation
+                || depth >= getDepth(stored)) {
+            keys[slot] = key ^ entry;
+            data[slot] = entry;
+        } else {
+            keys[slot + 1] = key ^ entry;
+            data[slot + 1] = entry;
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+    }
+
+    private int bucketOf(long key) {
+        return (int) ((key ^ (key >>> 32)) & bucketMask) * SLOTS_PER_BUCKET;
+    }
+
+    public static int getScore(long entry) {
+        return (int) entry;
+    }
+
+    public static int getDepth(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    public static int getBound(long entry) {
+        return (int) (entry >>> BOUND_SHIFT) & 0x3;
+    }
+
+    private static int getGeneration(long entry) {
+        return (int) (entry >>> GENERATION_SHIFT) & 0xFF;
+    }
+
+    // -1 if no move was stored
+    public static int getMove(long entry) {
+        return ((int) (entry >>> MOVE_SHIFT) & 0xFF) - 1;
+    }
+}
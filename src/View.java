@@ -8,4 +8,8 @@ public abstract class View {
 
     public abstract void drawBoard(Board board);
     public abstract int getStep(int player);
+
+    // returns once everything drawn so far is shown, views which draw asynchronously have to override it
+    public void flush() {
+    }
 }